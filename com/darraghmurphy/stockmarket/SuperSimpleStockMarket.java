@@ -1,16 +1,31 @@
 package com.darraghmurphy.stockmarket;
 
+import com.darraghmurphy.stockmarket.api.MarketSnapshotInterface;
+import com.darraghmurphy.stockmarket.api.PriceBarInterface;
+import com.darraghmurphy.stockmarket.api.StockIndexInterface;
 import com.darraghmurphy.stockmarket.api.StockInterface;
 import com.darraghmurphy.stockmarket.api.StockMarketInterface;
 import com.darraghmurphy.stockmarket.api.TradeInterface;
 import com.darraghmurphy.stockmarket.impl.CommonStock;
+import com.darraghmurphy.stockmarket.impl.MarketSnapshot;
 import com.darraghmurphy.stockmarket.impl.PreferredStock;
+import com.darraghmurphy.stockmarket.impl.StockRegistry;
+import com.darraghmurphy.stockmarket.impl.StockRegistryLoader;
+import com.darraghmurphy.stockmarket.impl.SymbolRanking;
+import com.darraghmurphy.stockmarket.impl.SymbolStatistics;
 import com.darraghmurphy.stockmarket.impl.Trade;
+import com.darraghmurphy.stockmarket.impl.TradeHistory;
+import com.darraghmurphy.stockmarket.impl.TradeMessage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Super Simple Stock Market.
@@ -18,33 +33,112 @@ import java.util.concurrent.ConcurrentSkipListSet;
 public class SuperSimpleStockMarket implements StockMarketInterface {
 
     /**
-     * Store of all trades active within the Stock market, sorted by timestamp.
-     * <p/>
-     * A sorted set automatically sorts the collection at insertion, meaning that it does the sorting while you
-     * add elements into the collection. It also means you don't need to manually sort it.
-     * <p/>
-     * The set will be sorted according to the comparator provided.
-     * time, which will improve access time when wish to get trades by timestamp.
-     * <p/>
-     * The elements are ordered using a custom comparator @TimestampComparator
+     * Length of the volume weighted stock price window.
      */
-    private final ConcurrentSkipListSet<TradeInterface> tradeSet = new ConcurrentSkipListSet(new TimestampComparator());
+    private static final long WINDOW_MILLIS = 15 * 60 * 1000;
 
     /**
-     * Business date and time.
+     * Stock reference data.
      * <p/>
-     * All calculates related to trade timestamps will be relative to this date.
+     * The registry is immutable, changes publish a new registry with a single volatile write so that lookups on the
+     * trade recording path never lock.
      */
-    private final Calendar businessDate;
+    private volatile StockRegistry stocks = StockRegistry.EMPTY;
+
     /**
-     * Store of all trades active within the Stock market, sorted by timestamp.
-     * <p/>
-     * The map will be sorted according to the comparator provided.
-     * time, which will improve access time when wish to get trades by timestamp.
+     * Trade statistics by stock symbol, maintained incrementally as trades are recorded.
+     */
+    private final ConcurrentHashMap<String, SymbolStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Trade statistics by slot, in order of first trade. Snapshots copy from this array.
+     */
+    private SymbolStatistics[] statisticsBySlot = new SymbolStatistics[16];
+
+    /**
+     * Number of slots in use.
+     */
+    private int symbolCount = 0;
+
+    /**
+     * Symbols ranked by number of shares traded in the past 15 minutes.
+     */
+    private final SymbolRanking volumeRanking = new SymbolRanking();
+
+    /**
+     * Symbols ranked by dividend yield at the last traded price.
+     */
+    private final SymbolRanking dividendYieldRanking = new SymbolRanking();
+
+    /**
+     * Symbols ranked by absolute relative move of the volume weighted stock price in the past 15 minutes.
+     */
+    private final SymbolRanking volumeWeightedStockPriceMoveRanking = new SymbolRanking();
+
+    /**
+     * Start of the volume weighted stock price window, 15 minutes before the business date.
+     */
+    private final long windowStart;
+
+    /**
+     * Intraday trade history, recent trades are kept raw and older trades compacted into one minute bars.
+     */
+    private final TradeHistory history = new TradeHistory(15);
+
+    /**
+     * Registered stock indices by name.
+     */
+    private final ConcurrentHashMap<String, StockIndexInterface> indices = new ConcurrentHashMap<>();
+
+    /**
+     * Index constituent positions by stock symbol, so a price change reaches every index that holds the stock
+     * without searching the registered indices.
+     */
+    private final ConcurrentHashMap<String, IndexConstituent[]> indexConstituents = new ConcurrentHashMap<>();
+
+    /**
+     * Sum of the natural logarithms of the prices of all recorded trades, maintained for the GBCE All Share Index.
      * <p/>
+     * A running product of the prices overflows or underflows after a few hundred trades, the sum of logarithms
+     * stays in range for any realistic number of trades.
+     */
+    private double tradePriceLogSum = 0;
+
+    /**
+     * Number of recorded trades.
+     */
+    private long tradeCount = 0;
+
+    /**
+     * Published GBCE All Share Index.
+     */
+    private volatile double geometricMean = 0;
+
+    /**
+     * Number of index notifications that failed, written by the recording thread.
+     */
+    private volatile long indexFailureCount;
+
+    /**
+     * Number of trades between automatically published snapshots, 0 to publish on request only.
+     */
+    private final int snapshotInterval;
+
+    /**
+     * Most recently published snapshot.
+     */
+    private volatile MarketSnapshot snapshot;
+
+    /**
+     * Set by readers to ask the recording thread to publish a snapshot as it finishes the trade in flight.
      */
-    private final ConcurrentHashMap<String, StockInterface> stocks = new ConcurrentHashMap<>();
+    private volatile boolean snapshotRequested;
 
+    /**
+     * Guards all changes to the market. A lock rather than the monitor, so that a snapshot reader can tell whether
+     * a trade is in flight.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Constructor.
@@ -52,7 +146,27 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
      * @param businessDate business date
      */
     public SuperSimpleStockMarket(Calendar businessDate) {
-        this.businessDate = businessDate;
+        this(businessDate, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param businessDate     business date
+     * @param snapshotInterval number of trades between automatically published snapshots, 0 to publish on request only
+     */
+    public SuperSimpleStockMarket(Calendar businessDate, int snapshotInterval) {
+
+        if (snapshotInterval < 0) throw new IllegalArgumentException(String.format("Invalid parameter %d", snapshotInterval));
+
+        this.snapshotInterval = snapshotInterval;
+        this.snapshot = new MarketSnapshot(0, 0, stocks, statistics, statisticsBySlot, 0, 0, indices.values());
+
+        /** Set the cutoff time to be 15 minutes in the past. */
+        Calendar cutOffTime = Calendar.getInstance(businessDate.getTimeZone());
+        cutOffTime.setTime(businessDate.getTime());
+        cutOffTime.add(Calendar.MINUTE, -15);
+        this.windowStart = cutOffTime.getTimeInMillis();
     }
 
     /**
@@ -60,7 +174,7 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
      */
     @Override
     public double dividendYield(String stockSymbol, double price) {
-        return stocks.get(stockSymbol).dividendYield(price);
+        return getStock(stockSymbol).dividendYield(price);
     }
 
     /**
@@ -68,7 +182,7 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
      */
     @Override
     public double priceEarningsRatio(String stockSymbol, double price) {
-        return stocks.get(stockSymbol).priceEarningsRatio(price);
+        return getStock(stockSymbol).priceEarningsRatio(price);
     }
 
     /**
@@ -77,7 +191,7 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
     @Override
     public void recordBuyTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
 
-        StockInterface stock = stocks.get(stockSymbol);
+        StockInterface stock = getStock(stockSymbol);
         TradeInterface trade = new Trade(TradeInterface.TradeStatus.BUY, numberOfShares, stock, price, timestamp);
 
         recordTrade(trade);
@@ -89,22 +203,134 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
     @Override
     public void recordSellTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
 
-        StockInterface stock = stocks.get(stockSymbol);
+        StockInterface stock = getStock(stockSymbol);
         TradeInterface trade = new Trade(TradeInterface.TradeStatus.SELL, numberOfShares, stock, price, timestamp);
 
         recordTrade(trade);
     }
 
+    /**
+     * Get a registered stock.
+     *
+     * @throws IllegalArgumentException if the symbol is not registered
+     */
+    private StockInterface getStock(String stockSymbol) {
+
+        StockInterface stock = stocks.get(stockSymbol);
+        if (stock == null) {
+            throw new IllegalArgumentException(String.format("Unknown stock symbol %s", stockSymbol));
+        }
+        return stock;
+    }
+
+    /**
+     * Record a fixed layout binary trade message, see {@link TradeMessage} for the layout.
+     * <p/>
+     * Fields are read in place from the buffer and the symbol is resolved against the registry without building a
+     * String, so no objects are created for a message of a known stock.
+     */
+    @Override
+    public void recordTradeMessage(ByteBuffer buffer, int offset) {
+
+        StockInterface stock = stocks.get(buffer, offset + TradeMessage.SYMBOL_OFFSET, TradeMessage.symbolLength(buffer, offset));
+        if (stock == null) {
+            throw new IllegalArgumentException(String.format("Unknown stock symbol %s", TradeMessage.symbol(buffer, offset)));
+        }
+
+        recordTrade(stock, TradeMessage.tradeStatus(buffer, offset), TradeMessage.numberOfShares(buffer, offset),
+                TradeMessage.price(buffer, offset), TradeMessage.timestamp(buffer, offset));
+    }
+
+    /**
+     * Record a trade.
+     */
+    private void recordTrade(TradeInterface trade) {
+        recordTrade(trade.getStock(), trade.getTradeStatus(), trade.getNumberOfShares(), trade.getPrice(), trade.getTimestamp().getTimeInMillis());
+    }
+
     /**
      * Record a trade.
+     * <p/>
+     * The trade is validated before any state is changed, a rejected trade leaves the history, statistics and
+     * indices untouched.
+     *
+     * @throws IllegalArgumentException if the number of shares is not positive or the price cannot be recorded, see
+     *                                  {@link TradeHistory#isRecordablePrice(double)}
      */
-    private synchronized void recordTrade(TradeInterface trade) {
+    private void recordTrade(StockInterface stock, TradeInterface.TradeStatus tradeStatus, int numberOfShares, double price, long timestamp) {
 
-        /** Store a list of stocks by symbol */
-        if (!stocks.keySet().contains(trade.getStock().getSymbol())) {
-            stocks.put(trade.getStock().getSymbol(), trade.getStock());
+        lock.lock();
+        try {
+            if (!TradeHistory.isRecordablePrice(price)) throw new IllegalArgumentException(String.format("Invalid parameter %s", price));
+            if (numberOfShares <= 0) throw new IllegalArgumentException(String.format("Invalid parameter %d", numberOfShares));
+            if (tradeStatus == null) throw new IllegalArgumentException("Invalid parameter null");
+
+            history.record(stock.getSymbol(), timestamp, price, numberOfShares);
+
+            updateStatistics(stock, tradeStatus, numberOfShares, price, timestamp);
+
+            if (snapshotRequested || (snapshotInterval > 0 && tradeCount % snapshotInterval == 0)) {
+                publishSnapshot();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply a trade to the per symbol statistics and rankings.
+     */
+    private void updateStatistics(StockInterface stock, TradeInterface.TradeStatus tradeStatus, int numberOfShares, double price, long timestamp) {
+
+        String symbol = stock.getSymbol();
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            if (symbolCount == statisticsBySlot.length) {
+                statisticsBySlot = Arrays.copyOf(statisticsBySlot, symbolCount * 2);
+            }
+            symbolStatistics = new SymbolStatistics(stock, symbolCount);
+            statisticsBySlot[symbolCount++] = symbolStatistics;
+            statistics.put(symbol, symbolStatistics);
+        }
+
+        double previousPrice = symbolStatistics.getLastPrice();
+        boolean inWindow = timestamp >= windowStart;
+        symbolStatistics.record(tradeStatus, numberOfShares, price, inWindow);
+
+        /** The GBCE All Share Index is the geometric mean of the prices of all trades */
+        tradePriceLogSum += Math.log(price);
+        tradeCount++;
+        geometricMean = Math.exp(tradePriceLogSum / tradeCount);
+
+        int slot = symbolStatistics.getSlot();
+        volumeRanking.update(slot, symbol, symbolStatistics.getWindowVolume());
+        dividendYieldRanking.update(slot, symbol, symbolStatistics.getDividendYield());
+        volumeWeightedStockPriceMoveRanking.update(slot, symbol, Math.abs(symbolStatistics.getVolumeWeightedStockPriceMove()));
+
+        /** Indices are notified last, once the market state reflects the whole trade */
+        if (symbolStatistics.getLastPrice() != previousPrice) {
+            IndexConstituent[] constituents = indexConstituents.get(symbol);
+            if (constituents != null) {
+                for (IndexConstituent constituent : constituents) {
+                    notifyIndex(constituent.index, constituent.position, symbolStatistics.getLastPrice());
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify an index of a constituent price change.
+     * <p/>
+     * Indices and their listeners are user code run on the recording thread. A failure is counted rather than
+     * propagated, so it can neither undo part of a recorded trade nor stop the remaining indices being notified.
+     * Called holding the market lock.
+     */
+    private void notifyIndex(StockIndexInterface index, int position, double price) {
+        try {
+            index.constituentPriceChanged(position, price);
+        } catch (RuntimeException e) {
+            indexFailureCount++;
         }
-        tradeSet.add(trade);
     }
 
     /**
@@ -113,8 +339,14 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
     @Override
     public void recordPreferredStock(String symbol, Double fixedDividend, Double parValue) {
 
-        PreferredStock ps = new PreferredStock(symbol, parValue, fixedDividend);
-        stocks.put(symbol, ps);
+        lock.lock();
+        try {
+            PreferredStock ps = new PreferredStock(symbol, parValue, fixedDividend);
+            stocks = stocks.with(ps);
+            refreshStatistics(ps);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -123,8 +355,58 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
     @Override
     public void recordCommonStock(String symbol, Double lastDividend, Double parValue) {
 
-        CommonStock cs = new CommonStock(symbol, lastDividend, parValue);
-        stocks.put(symbol, cs);
+        lock.lock();
+        try {
+            CommonStock cs = new CommonStock(symbol, lastDividend, parValue);
+            stocks = stocks.with(cs);
+            refreshStatistics(cs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record many stocks, replacing any stocks already recorded with the same symbols.
+     * <p/>
+     * The registry is rebuilt and published once for the whole batch, rather than copied for every stock.
+     */
+    @Override
+    public void recordStocks(Collection<? extends StockInterface> additions) {
+
+        lock.lock();
+        try {
+            stocks = stocks.with(additions);
+            for (StockInterface stock : additions) {
+                refreshStatistics(stocks.get(stock.getSymbol()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give a replaced stock to the statistics of its symbol, if it has already traded, and re-rank the symbol by
+     * dividend yield. Called holding the market lock.
+     */
+    private void refreshStatistics(StockInterface stock) {
+
+        SymbolStatistics symbolStatistics = statistics.get(stock.getSymbol());
+        if (symbolStatistics != null && symbolStatistics.getStock() != stock) {
+            symbolStatistics.setStock(stock);
+            dividendYieldRanking.update(symbolStatistics.getSlot(), stock.getSymbol(), symbolStatistics.getDividendYield());
+        }
+    }
+
+    /**
+     * Bulk load stock reference data, replacing any stocks already recorded with the same symbols.
+     * <p/>
+     * The file is parsed in full before the new registry is published, a malformed file leaves the current
+     * reference data untouched.
+     */
+    @Override
+    public void loadStocks(File file) throws IOException {
+
+        recordStocks(StockRegistryLoader.load(file));
     }
 
     /**
@@ -135,43 +417,130 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
     @Override
     public double volumeWeightedStockPrice(String symbol) {
 
-        /** Set the cutoff time to be 15 minutes in the past. */
-        Calendar cutOffTime = Calendar.getInstance(businessDate.getTimeZone());
-        cutOffTime.setTime(businessDate.getTime());
-        cutOffTime.add(Calendar.MINUTE, -15);
-
-        double quantity = 0;
-        double sumTradedPriceByQuantity = 0;
-
         /**
-         * It is imperative that we manually synchronize on map when before iterating.
-         * Failure to follow this advice may result in non-deterministic behavior.
+         * The window statistics are maintained as each trade is recorded, trades timestamped before the cutoff time
+         * never contribute, so no scan of the trade set is required.
          */
-        synchronized (tradeSet) {
-            for (TradeInterface trade : tradeSet) {
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            return 0;
+        }
 
-                /** As the trade map is sorted by date, we need look no further once we reach the cutoff time */
-                if (trade.getTimestamp().before(cutOffTime)) {
-                    break;
-                }
+        return symbolStatistics.getVolumeWeightedStockPrice();
+    }
 
-                if (trade.getStock().getSymbol().equals(symbol)) {
+    /**
+     * Calculate Volume Weighted Stock Price based on trades within [from, to).
+     */
+    @Override
+    public double volumeWeightedStockPrice(String symbol, Calendar from, Calendar to) {
+        return history.volumeWeightedStockPrice(symbol, from.getTimeInMillis(), to.getTimeInMillis());
+    }
 
-                    double tradedPriceByQuantity = trade.getPrice() * (double) trade.getNumberOfShares();
+    /**
+     * Calculate Volume Weighted Stock Price based on trades in the 15 minutes up to and including an instant.
+     */
+    @Override
+    public double volumeWeightedStockPriceAsOf(String symbol, Calendar asOf) {
 
-                    sumTradedPriceByQuantity += tradedPriceByQuantity;
+        long instant = asOf.getTimeInMillis();
+        return history.volumeWeightedStockPrice(symbol, instant - WINDOW_MILLIS, instant + 1);
+    }
 
-                    quantity += (double) trade.getNumberOfShares();
-                }
-            }
+    /**
+     * Relative move of the Volume Weighted Stock Price from the first trade price in the past 15 minutes.
+     *
+     * @return relative move, or 0 if the stock has not traded in the past 15 minutes
+     */
+    @Override
+    public double volumeWeightedStockPriceMove(String symbol) {
+
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            return 0;
+        }
+
+        return symbolStatistics.getVolumeWeightedStockPriceMove();
+    }
+
+    /**
+     * Volume Weighted Stock Price of BUY trades in the past 15 minutes.
+     */
+    @Override
+    public double buyVolumeWeightedStockPrice(String symbol) {
+
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            return 0;
+        }
+
+        return symbolStatistics.getBuyVolumeWeightedStockPrice();
+    }
+
+    /**
+     * Volume Weighted Stock Price of SELL trades in the past 15 minutes.
+     */
+    @Override
+    public double sellVolumeWeightedStockPrice(String symbol) {
+
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            return 0;
+        }
+
+        return symbolStatistics.getSellVolumeWeightedStockPrice();
+    }
+
+    /**
+     * Number of shares bought less number of shares sold in the past 15 minutes.
+     */
+    @Override
+    public long signedVolume(String symbol) {
+
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
+            return 0;
         }
 
-        /** Calculate Volume Weighted Stock Price */
-        if (sumTradedPriceByQuantity == 0 || quantity == 0) {
+        return symbolStatistics.getSignedVolume();
+    }
+
+    /**
+     * Order flow imbalance of trades in the past 15 minutes.
+     */
+    @Override
+    public double orderFlowImbalance(String symbol) {
+
+        SymbolStatistics symbolStatistics = statistics.get(symbol);
+        if (symbolStatistics == null) {
             return 0;
         }
 
-        return sumTradedPriceByQuantity / quantity;
+        return symbolStatistics.getOrderFlowImbalance();
+    }
+
+    /**
+     * Symbols with the highest number of shares traded in the past 15 minutes.
+     */
+    @Override
+    public List<String> topByVolume(int n) {
+        return volumeRanking.top(n);
+    }
+
+    /**
+     * Symbols with the highest dividend yield at their last traded price.
+     */
+    @Override
+    public List<String> topByDividendYield(int n) {
+        return dividendYieldRanking.top(n);
+    }
+
+    /**
+     * Symbols with the largest absolute Volume Weighted Stock Price move in the past 15 minutes.
+     */
+    @Override
+    public List<String> topByVolumeWeightedStockPriceMove(int n) {
+        return volumeWeightedStockPriceMoveRanking.top(n);
     }
 
     /**
@@ -190,36 +559,131 @@ public class SuperSimpleStockMarket implements StockMarketInterface {
          * which uses their sum).
          *
          * The geometric mean is defined as the nth root of the product of n numbers.
+         *
+         * The product and trade count are maintained as each trade is recorded.
          * */
-        double product = 0;
-        synchronized (tradeSet) {
-            for (TradeInterface trade : tradeSet) {
+        return geometricMean;
+    }
+
+    /**
+     * One minute price bars of a stock starting within [from, to).
+     */
+    @Override
+    public List<PriceBarInterface> priceHistory(String symbol, Calendar from, Calendar to) {
+        return history.bars(symbol, from.getTimeInMillis(), to.getTimeInMillis());
+    }
 
-                if (product == 0) product = 1;
-                product *= trade.getPrice();
+    /**
+     * Most recently published snapshot.
+     */
+    @Override
+    public MarketSnapshotInterface snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publish a snapshot holding every trade and change recorded before the call.
+     * <p/>
+     * A reader never waits for a trade in flight. If a trade is being recorded the recording thread makes the copy
+     * as it finishes that trade, while it already holds the market lock. Only when the market is idle does the
+     * caller take the lock and make the copy itself, so at most one trade can be held up by the copy.
+     */
+    @Override
+    public MarketSnapshotInterface requestSnapshot() {
+
+        snapshotRequested = true;
+        while (snapshotRequested) {
+            if (lock.tryLock()) {
+                try {
+                    if (snapshotRequested) publishSnapshot();
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                Thread.yield();
             }
         }
-        return Math.pow(product, 1.0 / tradeSet.size());
+        return snapshot;
+    }
+
+    /**
+     * Publish a snapshot of the market as it stands now, called holding the market lock so its values are
+     * mutually consistent. Readers of the published snapshot never lock.
+     */
+    private void publishSnapshot() {
+
+        snapshotRequested = false;
+        snapshot = new MarketSnapshot(snapshot.getVersion() + 1, tradeCount, stocks, statistics,
+                statisticsBySlot, symbolCount, geometricMean, indices.values());
     }
 
     /**
-     * This comparator is used to ensure that trades are stored in order of their timestamp
+     * Register a stock index, seeded with the last traded price of each constituent that has already traded.
      */
-    private class TimestampComparator implements Comparator<TradeInterface> {
+    @Override
+    public void registerIndex(StockIndexInterface index) {
+
+        lock.lock();
+        try {
+            if (indices.containsKey(index.getName())) {
+                throw new IllegalArgumentException(String.format("Index %s is already registered", index.getName()));
+            }
+
+            for (int position = 0; position < index.getConstituentCount(); position++) {
+
+                String symbol = index.getConstituent(position);
+
+                /** Copy on write, the recording thread reads the array without locking */
+                IndexConstituent[] current = indexConstituents.get(symbol);
+                IndexConstituent[] updated = current == null ? new IndexConstituent[1] : Arrays.copyOf(current, current.length + 1);
+                updated[updated.length - 1] = new IndexConstituent(index, position);
+                indexConstituents.put(symbol, updated);
+
+                SymbolStatistics symbolStatistics = statistics.get(symbol);
+                if (symbolStatistics != null && symbolStatistics.getLastPrice() > 0) {
+                    notifyIndex(index, position, symbolStatistics.getLastPrice());
+                }
+            }
+            indices.put(index.getName(), index);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        public int compare(TradeInterface m1, TradeInterface m2) {
+    /**
+     * Current value of a registered stock index.
+     */
+    @Override
+    public double indexValue(String name) {
 
-            /**
-             * Comparator returns 1 instead of 0 in case of equal elements. Hence in the case of equal elements
-             * the TreeSet with this Comparator will not overwrite the duplicate and will just sort it.
-             */
-            if (m1.getTimestamp().equals(m2.getTimestamp())) return 1;
-            else return m1.getTimestamp().compareTo(m2.getTimestamp());
+        StockIndexInterface index = indices.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("Unknown index %s", name));
         }
+
+        return index.getValue();
     }
 
+    /**
+     * Number of index notifications that failed.
+     */
+    @Override
+    public long indexFailureCount() {
+        return indexFailureCount;
+    }
 
-}
+    /**
+     * Position of a stock within a registered index.
+     */
+    private static final class IndexConstituent {
 
+        private final StockIndexInterface index;
 
+        private final int position;
 
+        private IndexConstituent(StockIndexInterface index, int position) {
+            this.index = index;
+            this.position = position;
+        }
+    }
+}
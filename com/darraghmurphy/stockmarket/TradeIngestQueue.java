@@ -0,0 +1,499 @@
+package com.darraghmurphy.stockmarket;
+
+import com.darraghmurphy.stockmarket.api.StockMarketInterface;
+import com.darraghmurphy.stockmarket.api.TradeInterface.TradeStatus;
+import com.darraghmurphy.stockmarket.impl.TradeHistory;
+
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded admission queue in front of a stock market.
+ * <p/>
+ * Callers submit trades to the queue and return immediately while there is room; a single drain thread records
+ * them into the market in order. When the queue is full the configured {@link OverloadPolicy} decides what happens,
+ * so a burst degrades in a predictable way rather than stalling every caller on the market lock.
+ * <p/>
+ * Interrupting the drain thread closes the queue: the trades already queued are still recorded, while blocked and
+ * later submissions return false.
+ * <p/>
+ * Queue depth, its high water mark and the number of trades accepted, dropped, conflated and rejected by the market
+ * are exported for monitoring.
+ */
+public class TradeIngestQueue {
+
+    /**
+     * Behaviour when a trade is submitted to a full queue.
+     */
+    public enum OverloadPolicy {
+
+        /**
+         * Block the caller until there is room.
+         */
+        BLOCK,
+
+        /**
+         * Drop the oldest queued trade to make room.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Merge the trade into a queued trade for the same symbol and side, keeping the total quantity and the volume
+         * weighted price, and taking the later timestamp. If there is no such trade the oldest queued trade is dropped.
+         */
+        CONFLATE
+    }
+
+    /**
+     * Maximum number of trades taken from the queue per lock acquisition by the drain thread.
+     */
+    private static final int DRAIN_BATCH = 256;
+
+    /**
+     * Market trades are recorded into.
+     */
+    private final StockMarketInterface market;
+
+    /**
+     * Maximum number of queued trades.
+     */
+    private final int capacity;
+
+    /**
+     * Behaviour when full.
+     */
+    private final OverloadPolicy policy;
+
+    /**
+     * Queued trades, oldest first.
+     */
+    private final ArrayDeque<PendingTrade> queue;
+
+    /**
+     * Queued BUY trades by symbol, for conflation.
+     */
+    private final HashMap<String, PendingTrade> pendingBuys = new HashMap<>();
+
+    /**
+     * Queued SELL trades by symbol, for conflation.
+     */
+    private final HashMap<String, PendingTrade> pendingSells = new HashMap<>();
+
+    /**
+     * Guards the queue.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a trade is queued.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Signalled when room is made in the queue.
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Number of trades accepted, including conflated trades.
+     */
+    private final AtomicLong accepted = new AtomicLong();
+
+    /**
+     * Number of queued trades dropped to make room.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Number of trades merged into a queued trade.
+     */
+    private final AtomicLong conflated = new AtomicLong();
+
+    /**
+     * Number of trades rejected by the market.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Published queue depth.
+     */
+    private volatile int queueDepth;
+
+    /**
+     * Highest queue depth seen.
+     */
+    private volatile int maxQueueDepth;
+
+    /**
+     * Set once the queue is closed to new trades.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Drain thread, null until started.
+     */
+    private Thread drainThread;
+
+    /**
+     * Constructor.
+     *
+     * @param market   market trades are recorded into
+     * @param capacity maximum number of queued trades
+     * @param policy   behaviour when the queue is full
+     */
+    public TradeIngestQueue(StockMarketInterface market, int capacity, OverloadPolicy policy) {
+
+        if (capacity <= 0) throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+
+        this.market = market;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Start the drain thread.
+     */
+    public synchronized void start() {
+
+        if (drainThread != null) throw new IllegalStateException("Already started");
+
+        drainThread = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "trade-ingest");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Close the queue to new trades and wait for the queued trades to be recorded.
+     * <p/>
+     * If the drain thread was never started the queued trades are recorded on the calling thread.
+     *
+     * @throws InterruptedException Interrupted while waiting.
+     */
+    public void close() throws InterruptedException {
+
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        Thread thread;
+        synchronized (this) {
+            thread = drainThread;
+        }
+        if (thread != null) {
+            thread.join();
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Submit a BUY trade.
+     *
+     * @param numberOfShares number of shares
+     * @param stockSymbol    stock symbol
+     * @param price          stock price
+     * @param timestamp      trade timestamp
+     * @return true if the trade was queued or conflated, false if the queue is closed or the caller was interrupted
+     * @throws IllegalArgumentException if a parameter is missing, the number of shares is not positive or the price
+     *                                  cannot be recorded
+     */
+    public boolean submitBuyTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
+        return submit(new PendingTrade(TradeStatus.BUY, numberOfShares, stockSymbol, price, timestamp));
+    }
+
+    /**
+     * Submit a SELL trade.
+     *
+     * @param numberOfShares number of shares
+     * @param stockSymbol    stock symbol
+     * @param price          stock price
+     * @param timestamp      trade timestamp
+     * @return true if the trade was queued or conflated, false if the queue is closed or the caller was interrupted
+     * @throws IllegalArgumentException if a parameter is missing, the number of shares is not positive or the price
+     *                                  cannot be recorded
+     */
+    public boolean submitSellTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
+        return submit(new PendingTrade(TradeStatus.SELL, numberOfShares, stockSymbol, price, timestamp));
+    }
+
+    /**
+     * Submit a trade, applying the overload policy if the queue is full.
+     */
+    private boolean submit(PendingTrade trade) {
+
+        lock.lock();
+        try {
+            if (closed) return false;
+
+            if (queue.size() == capacity) {
+                switch (policy) {
+                    case BLOCK:
+                        while (queue.size() == capacity && !closed) {
+                            try {
+                                notFull.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return false;
+                            }
+                        }
+                        if (closed) return false;
+                        break;
+
+                    case CONFLATE:
+                        PendingTrade pending = pending(trade.tradeStatus).get(trade.symbol);
+                        if (pending != null && pending.merge(trade)) {
+                            accepted.incrementAndGet();
+                            conflated.incrementAndGet();
+                            return true;
+                        }
+                        dropOldest();
+                        break;
+
+                    default:
+                        dropOldest();
+                        break;
+                }
+            }
+
+            queue.addLast(trade);
+            if (policy == OverloadPolicy.CONFLATE) {
+                pending(trade.tradeStatus).put(trade.symbol, trade);
+            }
+            accepted.incrementAndGet();
+            updateDepth();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the oldest queued trade, lock must be held.
+     */
+    private void dropOldest() {
+        forget(queue.pollFirst());
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Remove a dequeued trade from the conflation index, lock must be held.
+     */
+    private void forget(PendingTrade trade) {
+        if (policy == OverloadPolicy.CONFLATE) {
+            HashMap<String, PendingTrade> pending = pending(trade.tradeStatus);
+            if (pending.get(trade.symbol) == trade) pending.remove(trade.symbol);
+        }
+    }
+
+    /**
+     * Queued trades by symbol for one side, lock must be held.
+     */
+    private HashMap<String, PendingTrade> pending(TradeStatus tradeStatus) {
+        return tradeStatus == TradeStatus.BUY ? pendingBuys : pendingSells;
+    }
+
+    /**
+     * Publish the queue depth, lock must be held.
+     */
+    private void updateDepth() {
+        queueDepth = queue.size();
+        if (queueDepth > maxQueueDepth) maxQueueDepth = queueDepth;
+    }
+
+    /**
+     * Drain thread body, records queued trades in batches until the queue is closed and empty.
+     * <p/>
+     * An interrupt closes the queue, the interrupt status is restored once the queued trades have been recorded.
+     */
+    private void drain() {
+
+        PendingTrade[] batch = new PendingTrade[DRAIN_BATCH];
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                int count = 0;
+
+                lock.lock();
+                try {
+                    if (Thread.interrupted()) interrupted = true;
+                    if (interrupted && !closed) {
+                        closed = true;
+                        notFull.signalAll();
+                    }
+                    while (queue.isEmpty()) {
+                        if (closed) return;
+                        notEmpty.await(100, TimeUnit.MILLISECONDS);
+                    }
+                    while (count < DRAIN_BATCH && !queue.isEmpty()) {
+                        PendingTrade trade = queue.pollFirst();
+                        forget(trade);
+                        batch[count++] = trade;
+                    }
+                    updateDepth();
+                    notFull.signalAll();
+                } catch (InterruptedException e) {
+                    /** Closed on the next pass, the batch is empty as the wait comes before any trade is taken */
+                    interrupted = true;
+                } finally {
+                    lock.unlock();
+                }
+
+                /** Trades are recorded outside the queue lock so producers are never held up by the market */
+                for (int i = 0; i < count; i++) {
+                    record(batch[i]);
+                    batch[i] = null;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Record a trade into the market.
+     * <p/>
+     * Any failure is counted as a rejection of that trade, so a faulty trade or market never stops the drain thread
+     * and leaves producers blocked on a full queue.
+     */
+    private void record(PendingTrade trade) {
+        try {
+            if (trade.tradeStatus == TradeStatus.BUY) {
+                market.recordBuyTrade(trade.numberOfShares, trade.symbol, trade.price, trade.timestamp);
+            } else {
+                market.recordSellTrade(trade.numberOfShares, trade.symbol, trade.price, trade.timestamp);
+            }
+        } catch (RuntimeException e) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     *
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     *
+     */
+    public OverloadPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get number of trades waiting to be recorded.
+     *
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Get highest queue depth seen.
+     *
+     * @return queue depth high water mark
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Get number of trades accepted, including conflated trades.
+     *
+     * @return accepted count
+     */
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Get number of queued trades dropped to make room.
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Get number of trades merged into a queued trade.
+     *
+     * @return conflated count
+     */
+    public long getConflatedCount() {
+        return conflated.get();
+    }
+
+    /**
+     * Get number of trades the market rejected, e.g. for an unknown symbol, or failed to record.
+     *
+     * @return rejected count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Trade waiting to be recorded.
+     */
+    private static final class PendingTrade {
+
+        private final TradeStatus tradeStatus;
+
+        private final String symbol;
+
+        private int numberOfShares;
+
+        private double price;
+
+        private Calendar timestamp;
+
+        private PendingTrade(TradeStatus tradeStatus, int numberOfShares, String symbol, double price, Calendar timestamp) {
+
+            if (symbol == null || timestamp == null) throw new IllegalArgumentException("Invalid parameter null");
+            if (numberOfShares <= 0) throw new IllegalArgumentException(String.format("Invalid parameter %d", numberOfShares));
+            if (!TradeHistory.isRecordablePrice(price)) throw new IllegalArgumentException(String.format("Invalid parameter %s", price));
+
+            this.tradeStatus = tradeStatus;
+            this.numberOfShares = numberOfShares;
+            this.symbol = symbol;
+            this.price = price;
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * Merge a later trade for the same symbol and side.
+         *
+         * @return false if the combined quantity would overflow
+         */
+        private boolean merge(PendingTrade later) {
+
+            long shares = (long) numberOfShares + later.numberOfShares;
+            if (shares > Integer.MAX_VALUE) return false;
+
+            price = (price * numberOfShares + later.price * later.numberOfShares) / shares;
+            numberOfShares = (int) shares;
+            if (later.timestamp.after(timestamp)) timestamp = later.timestamp;
+            return true;
+        }
+    }
+}
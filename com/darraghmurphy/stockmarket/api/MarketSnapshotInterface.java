@@ -0,0 +1,121 @@
+package com.darraghmurphy.stockmarket.api;
+
+/**
+ * Immutable point in time view of the stock market.
+ * <p/>
+ * Every query against a snapshot answers from the same instant, and no query locks or touches the state being
+ * updated by the trade recording thread.
+ */
+public interface MarketSnapshotInterface {
+
+    /**
+     * Get snapshot version, increasing with each published snapshot
+     *
+     * @return version
+     */
+    long getVersion();
+
+    /**
+     * Get number of trades recorded when the snapshot was taken
+     *
+     * @return trade count
+     */
+    long getTradeCount();
+
+    /**
+     * Calculate dividend yield
+     *
+     * @param stockSymbol stock symbol
+     * @param price       stock price
+     * @return dividend yield
+     */
+    double dividendYield(String stockSymbol, double price);
+
+    /**
+     * Calculate price per earnings ratio
+     *
+     * @param stockSymbol stock symbol
+     * @param price       stock price
+     * @return price per earnings ratio
+     */
+    double priceEarningsRatio(String stockSymbol, double price);
+
+    /**
+     * Get last traded price
+     *
+     * @param symbol stock symbol
+     * @return last traded price, or 0 if the stock had not traded
+     */
+    double lastPrice(String symbol);
+
+    /**
+     * Calculate volume weighted stock price
+     *
+     * @param symbol stock symbol
+     * @return volume weighted stock price
+     */
+    double volumeWeightedStockPrice(String symbol);
+
+    /**
+     * Calculate relative move of the volume weighted stock price from the first trade price in the window
+     *
+     * @param symbol stock symbol
+     * @return relative volume weighted stock price move
+     */
+    double volumeWeightedStockPriceMove(String symbol);
+
+    /**
+     * Calculate volume weighted stock price of BUY trades in the window
+     *
+     * @param symbol stock symbol
+     * @return buy volume weighted stock price
+     */
+    double buyVolumeWeightedStockPrice(String symbol);
+
+    /**
+     * Calculate volume weighted stock price of SELL trades in the window
+     *
+     * @param symbol stock symbol
+     * @return sell volume weighted stock price
+     */
+    double sellVolumeWeightedStockPrice(String symbol);
+
+    /**
+     * Calculate number of shares traded in the window
+     *
+     * @param symbol stock symbol
+     * @return window volume
+     */
+    long windowVolume(String symbol);
+
+    /**
+     * Calculate number of shares bought less number of shares sold in the window
+     *
+     * @param symbol stock symbol
+     * @return signed volume
+     */
+    long signedVolume(String symbol);
+
+    /**
+     * Calculate order flow imbalance in the window
+     *
+     * @param symbol stock symbol
+     * @return order flow imbalance between -1 and 1
+     */
+    double orderFlowImbalance(String symbol);
+
+    /**
+     * Get the GBCE All Share Index
+     *
+     * @return geometric mean
+     */
+    double geometricMean();
+
+    /**
+     * Get the value of a registered stock index
+     *
+     * @param name index name
+     * @return index value
+     */
+    double indexValue(String name);
+}
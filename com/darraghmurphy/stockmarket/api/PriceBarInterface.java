@@ -0,0 +1,56 @@
+package com.darraghmurphy.stockmarket.api;
+
+/**
+ * One minute price bar of a stock's trade history.
+ */
+public interface PriceBarInterface {
+
+    /**
+     * Get start of the minute covered by the bar
+     *
+     * @return start time in milliseconds since the epoch
+     */
+    long getStartTime();
+
+    /**
+     * Get price of the first trade in the minute
+     *
+     * @return open price
+     */
+    double getOpen();
+
+    /**
+     * Get highest traded price in the minute
+     *
+     * @return high price
+     */
+    double getHigh();
+
+    /**
+     * Get lowest traded price in the minute
+     *
+     * @return low price
+     */
+    double getLow();
+
+    /**
+     * Get price of the last trade in the minute
+     *
+     * @return close price
+     */
+    double getClose();
+
+    /**
+     * Get number of shares traded in the minute
+     *
+     * @return volume
+     */
+    long getVolume();
+
+    /**
+     * Get volume weighted stock price of the trades in the minute
+     *
+     * @return volume weighted stock price
+     */
+    double getVolumeWeightedStockPrice();
+}
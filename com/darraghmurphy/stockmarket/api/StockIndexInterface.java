@@ -0,0 +1,54 @@
+package com.darraghmurphy.stockmarket.api;
+
+/**
+ * Stock index interface.
+ * <p/>
+ * An index is maintained incrementally, the market notifies it whenever the last traded price of one of its
+ * constituents changes.
+ */
+public interface StockIndexInterface {
+
+    /**
+     * Get index name
+     *
+     * @return index name
+     */
+    String getName();
+
+    /**
+     * Get number of constituents
+     *
+     * @return number of constituents
+     */
+    int getConstituentCount();
+
+    /**
+     * Get constituent stock symbol
+     *
+     * @param constituent constituent position
+     * @return stock symbol
+     */
+    String getConstituent(int constituent);
+
+    /**
+     * Get current index value
+     *
+     * @return index value
+     */
+    double getValue();
+
+    /**
+     * Apply a change in the last traded price of a constituent.
+     *
+     * @param constituent constituent position
+     * @param price       last traded price
+     */
+    void constituentPriceChanged(int constituent, double price);
+
+    /**
+     * Set the listener notified when the index value changes.
+     *
+     * @param listener index listener, or null for no notifications
+     */
+    void setListener(StockIndexListenerInterface listener);
+}
@@ -0,0 +1,16 @@
+package com.darraghmurphy.stockmarket.api;
+
+/**
+ * Stock index change listener.
+ */
+public interface StockIndexListenerInterface {
+
+    /**
+     * Called on the recording thread whenever the index value changes, after the trade has been fully recorded. An
+     * exception thrown by the listener is counted by the market and does not affect the trade.
+     *
+     * @param index index that changed
+     * @param value new index value
+     */
+    void indexChanged(StockIndexInterface index, double value);
+}
@@ -1,6 +1,11 @@
 package com.darraghmurphy.stockmarket.api;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Stock Market Interface
@@ -27,6 +32,14 @@ public interface StockMarketInterface {
      */
     void recordSellTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp);
 
+    /**
+     * Record a trade from a fixed layout binary trade message, without decoding it into objects.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     */
+    void recordTradeMessage(ByteBuffer buffer, int offset);
+
     /**
      * @param symbol        stock symbol
      * @param fixedDividend fixed dividend
@@ -41,6 +54,21 @@ public interface StockMarketInterface {
      */
     void recordCommonStock(String symbol, Double lastDividend, Double parValue);
 
+    /**
+     * Record many common and preferred stocks at once
+     *
+     * @param stocks stocks
+     */
+    void recordStocks(Collection<? extends StockInterface> stocks);
+
+    /**
+     * Bulk load common and preferred stock definitions
+     *
+     * @param file stock definition file
+     * @throws IOException Error reading the file.
+     */
+    void loadStocks(File file) throws IOException;
+
     /**
      * Calculate dividend yield
      *
@@ -67,10 +95,139 @@ public interface StockMarketInterface {
      */
     double volumeWeightedStockPrice(String symbol);
 
+    /**
+     * Calculate volume weighted stock price over a time range
+     *
+     * @param symbol stock symbol
+     * @param from   start of range, inclusive
+     * @param to     end of range, exclusive
+     * @return volume weighted stock price
+     */
+    double volumeWeightedStockPrice(String symbol, Calendar from, Calendar to);
+
+    /**
+     * Calculate volume weighted stock price over the window ending at a past instant, inclusive
+     *
+     * @param symbol stock symbol
+     * @param asOf   end of window
+     * @return volume weighted stock price
+     */
+    double volumeWeightedStockPriceAsOf(String symbol, Calendar asOf);
+
+    /**
+     * Calculate relative move of the volume weighted stock price from the first trade price in the window
+     *
+     * @param symbol stock symbol
+     * @return relative volume weighted stock price move
+     */
+    double volumeWeightedStockPriceMove(String symbol);
+
+    /**
+     * Calculate volume weighted stock price of BUY trades in the window
+     *
+     * @param symbol stock symbol
+     * @return buy volume weighted stock price
+     */
+    double buyVolumeWeightedStockPrice(String symbol);
+
+    /**
+     * Calculate volume weighted stock price of SELL trades in the window
+     *
+     * @param symbol stock symbol
+     * @return sell volume weighted stock price
+     */
+    double sellVolumeWeightedStockPrice(String symbol);
+
+    /**
+     * Calculate number of shares bought less number of shares sold in the window
+     *
+     * @param symbol stock symbol
+     * @return signed volume
+     */
+    long signedVolume(String symbol);
+
+    /**
+     * Calculate order flow imbalance, (buy volume - sell volume) / total volume, in the window
+     *
+     * @param symbol stock symbol
+     * @return order flow imbalance between -1 and 1
+     */
+    double orderFlowImbalance(String symbol);
+
+    /**
+     * Get the symbols with the highest traded volume in the window
+     *
+     * @param n maximum number of symbols
+     * @return stock symbols, highest volume first
+     */
+    List<String> topByVolume(int n);
+
+    /**
+     * Get the symbols with the highest dividend yield at the last traded price
+     *
+     * @param n maximum number of symbols
+     * @return stock symbols, highest dividend yield first
+     */
+    List<String> topByDividendYield(int n);
+
+    /**
+     * Get the symbols with the largest absolute volume weighted stock price move in the window
+     *
+     * @param n maximum number of symbols
+     * @return stock symbols, largest move first
+     */
+    List<String> topByVolumeWeightedStockPriceMove(int n);
+
     /**
      * Calculate volume weighted stock price
      *
      * @return geometric mean
      */
     double geometricMean();
+
+    /**
+     * Get the one minute price bars of a stock starting within a time range
+     *
+     * @param symbol stock symbol
+     * @param from   start of range, inclusive
+     * @param to     end of range, exclusive
+     * @return price bars ordered by start time
+     */
+    List<PriceBarInterface> priceHistory(String symbol, Calendar from, Calendar to);
+
+    /**
+     * Get the most recently published market snapshot
+     *
+     * @return market snapshot
+     */
+    MarketSnapshotInterface snapshot();
+
+    /**
+     * Request a market snapshot holding every trade and change recorded before the call
+     *
+     * @return market snapshot
+     */
+    MarketSnapshotInterface requestSnapshot();
+
+    /**
+     * Register a stock index to be maintained as constituent prices change
+     *
+     * @param index stock index
+     */
+    void registerIndex(StockIndexInterface index);
+
+    /**
+     * Get the current value of a registered stock index
+     *
+     * @param name index name
+     * @return index value
+     */
+    double indexValue(String name);
+
+    /**
+     * Get the number of times a registered index, or its listener, failed when notified of a price change
+     *
+     * @return failure count
+     */
+    long indexFailureCount();
 }
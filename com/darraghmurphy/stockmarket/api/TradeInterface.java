@@ -35,6 +35,13 @@ public interface TradeInterface {
      */
     int getNumberOfShares();
 
+    /**
+     * Get trade status, buy or sell indicator
+     *
+     * @return trade status
+     */
+    TradeStatus getTradeStatus();
+
     /**
      * Trade status.
      */
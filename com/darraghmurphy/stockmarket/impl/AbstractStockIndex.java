@@ -0,0 +1,119 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.StockIndexInterface;
+import com.darraghmurphy.stockmarket.api.StockIndexListenerInterface;
+
+/**
+ * Abstract Stock Index.
+ * <p/>
+ * Holds the last traded price of each constituent in an array indexed by constituent position, so that a price
+ * change is applied with array access only. Updates are expected from a single writer.
+ */
+public abstract class AbstractStockIndex implements StockIndexInterface {
+
+    /**
+     * Index name.
+     */
+    private final String name;
+
+    /**
+     * Constituent stock symbols.
+     */
+    private final String[] symbols;
+
+    /**
+     * Last traded price of each constituent, 0 if the constituent has not traded.
+     */
+    final double[] prices;
+
+    /**
+     * Current index value.
+     */
+    private volatile double value;
+
+    /**
+     * Listener notified of value changes, may be null.
+     */
+    private volatile StockIndexListenerInterface listener;
+
+    /**
+     * Constructor.
+     *
+     * @param name    index name
+     * @param symbols constituent stock symbols
+     */
+    AbstractStockIndex(String name, String[] symbols) {
+
+        if (symbols.length == 0) throw new IllegalArgumentException(String.format("Index %s has no constituents", name));
+
+        this.name = name;
+        this.symbols = symbols.clone();
+        this.prices = new double[symbols.length];
+    }
+
+    /**
+     *
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     */
+    public int getConstituentCount() {
+        return symbols.length;
+    }
+
+    /**
+     *
+     */
+    public String getConstituent(int constituent) {
+        return symbols[constituent];
+    }
+
+    /**
+     *
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     *
+     */
+    public void setListener(StockIndexListenerInterface listener) {
+        this.listener = listener;
+    }
+
+    /**
+     *
+     */
+    public void constituentPriceChanged(int constituent, double price) {
+
+        if (price <= 0) throw new IllegalArgumentException(String.format("Invalid parameter %f", price));
+
+        double previousPrice = prices[constituent];
+        if (previousPrice == price) return;
+
+        prices[constituent] = price;
+        double newValue = apply(constituent, previousPrice, price);
+
+        if (newValue != value) {
+            value = newValue;
+
+            StockIndexListenerInterface current = listener;
+            if (current != null) current.indexChanged(this, newValue);
+        }
+    }
+
+    /**
+     * Apply a constituent price change to the running state of the index.
+     *
+     * @param constituent   constituent position
+     * @param previousPrice previous last traded price, 0 if the constituent had not traded
+     * @param price         new last traded price
+     * @return new index value
+     */
+    abstract double apply(int constituent, double previousPrice, double price);
+}
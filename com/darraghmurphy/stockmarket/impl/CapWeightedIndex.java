@@ -0,0 +1,22 @@
+package com.darraghmurphy.stockmarket.impl;
+
+/**
+ * Capitalisation Weighted Index.
+ * <p/>
+ * The index value is <pre>sum(shares outstanding * price) / divisor</pre>, i.e. the total market capitalisation of
+ * the constituents scaled by the divisor.
+ */
+public class CapWeightedIndex extends PriceWeightedIndex {
+
+    /**
+     * Constructor.
+     *
+     * @param name              index name
+     * @param symbols           constituent stock symbols
+     * @param sharesOutstanding shares outstanding of each constituent
+     * @param divisor           index divisor
+     */
+    public CapWeightedIndex(String name, String[] symbols, double[] sharesOutstanding, double divisor) {
+        super(name, symbols, sharesOutstanding, divisor);
+    }
+}
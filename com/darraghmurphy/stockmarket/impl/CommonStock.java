@@ -3,6 +3,7 @@ package com.darraghmurphy.stockmarket.impl;
 import com.darraghmurphy.stockmarket.api.StockInterface;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 
 /**
  * Common Stock.
@@ -35,7 +36,7 @@ public class CommonStock extends AbstractStock implements StockInterface {
      */
     public double priceEarningsRatio(double price) {
 
-        return new BigDecimal(price).divide(lastDividend).doubleValue();
+        return new BigDecimal(price).divide(lastDividend, MathContext.DECIMAL64).doubleValue();
     }
 
     /**
@@ -48,7 +49,7 @@ public class CommonStock extends AbstractStock implements StockInterface {
         /** TODO Requirements are unclear. Discussion required. */
         if (lastDividend.signum() != 1) return 0d;
 
-        return lastDividend.divide(BigDecimal.valueOf(price)).doubleValue();
+        return lastDividend.divide(BigDecimal.valueOf(price), MathContext.DECIMAL64).doubleValue();
 
     }
 }
\ No newline at end of file
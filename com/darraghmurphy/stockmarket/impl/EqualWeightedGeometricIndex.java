@@ -0,0 +1,46 @@
+package com.darraghmurphy.stockmarket.impl;
+
+/**
+ * Equal Weighted Geometric Index.
+ * <p/>
+ * The index value is the geometric mean of the last traded prices of the constituents that have traded. The sum of
+ * the logarithms of the prices is maintained, so a price change costs two logarithms and one exponential rather
+ * than a product over every constituent.
+ */
+public class EqualWeightedGeometricIndex extends AbstractStockIndex {
+
+    /**
+     * Running sum of the logarithm of each traded constituent's last price.
+     */
+    private double sumOfLogs;
+
+    /**
+     * Number of constituents that have traded.
+     */
+    private int tradedConstituents;
+
+    /**
+     * Constructor.
+     *
+     * @param name    index name
+     * @param symbols constituent stock symbols
+     */
+    public EqualWeightedGeometricIndex(String name, String[] symbols) {
+        super(name, symbols);
+    }
+
+    /**
+     *
+     */
+    double apply(int constituent, double previousPrice, double price) {
+
+        if (previousPrice == 0) {
+            tradedConstituents++;
+        } else {
+            sumOfLogs -= Math.log(previousPrice);
+        }
+        sumOfLogs += Math.log(price);
+
+        return Math.exp(sumOfLogs / tradedConstituents);
+    }
+}
@@ -0,0 +1,238 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.MarketSnapshotInterface;
+import com.darraghmurphy.stockmarket.api.StockIndexInterface;
+import com.darraghmurphy.stockmarket.api.StockInterface;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable point in time view of the stock market.
+ * <p/>
+ * Per symbol values are copied into primitive arrays indexed by the symbol's statistics slot. Slots are assigned
+ * once, in order of first trade, so the live symbol to statistics map can be shared with the market: a symbol whose
+ * slot is beyond the snapshot's symbol count had not traded when the snapshot was taken.
+ */
+public final class MarketSnapshot implements MarketSnapshotInterface {
+
+    private final long version;
+
+    private final long tradeCount;
+
+    private final StockRegistry stocks;
+
+    /**
+     * Live symbol to statistics map, only used to find a symbol's slot.
+     */
+    private final Map<String, SymbolStatistics> slots;
+
+    private final int symbolCount;
+
+    private final double[] lastPrices;
+
+    private final double[] volumeWeightedStockPrices;
+
+    private final double[] volumeWeightedStockPriceMoves;
+
+    private final double[] buyVolumeWeightedStockPrices;
+
+    private final double[] sellVolumeWeightedStockPrices;
+
+    private final long[] windowVolumes;
+
+    private final long[] signedVolumes;
+
+    private final double[] orderFlowImbalances;
+
+    private final double geometricMean;
+
+    private final Map<String, Double> indexValues;
+
+    /**
+     * Constructor, must be called by the trade recording thread so the copied values are mutually consistent.
+     *
+     * @param version       snapshot version
+     * @param tradeCount    number of trades recorded
+     * @param stocks        stock reference data
+     * @param slots         live symbol to statistics map
+     * @param statistics    statistics indexed by slot
+     * @param symbolCount   number of slots in use
+     * @param geometricMean GBCE All Share Index
+     * @param indices       registered stock indices
+     */
+    public MarketSnapshot(long version, long tradeCount, StockRegistry stocks, Map<String, SymbolStatistics> slots,
+                          SymbolStatistics[] statistics, int symbolCount, double geometricMean,
+                          Collection<StockIndexInterface> indices) {
+
+        this.version = version;
+        this.tradeCount = tradeCount;
+        this.stocks = stocks;
+        this.slots = slots;
+        this.symbolCount = symbolCount;
+        this.geometricMean = geometricMean;
+
+        lastPrices = new double[symbolCount];
+        volumeWeightedStockPrices = new double[symbolCount];
+        volumeWeightedStockPriceMoves = new double[symbolCount];
+        buyVolumeWeightedStockPrices = new double[symbolCount];
+        sellVolumeWeightedStockPrices = new double[symbolCount];
+        windowVolumes = new long[symbolCount];
+        signedVolumes = new long[symbolCount];
+        orderFlowImbalances = new double[symbolCount];
+
+        for (int slot = 0; slot < symbolCount; slot++) {
+            SymbolStatistics symbolStatistics = statistics[slot];
+            lastPrices[slot] = symbolStatistics.getLastPrice();
+            volumeWeightedStockPrices[slot] = symbolStatistics.getVolumeWeightedStockPrice();
+            volumeWeightedStockPriceMoves[slot] = symbolStatistics.getVolumeWeightedStockPriceMove();
+            buyVolumeWeightedStockPrices[slot] = symbolStatistics.getBuyVolumeWeightedStockPrice();
+            sellVolumeWeightedStockPrices[slot] = symbolStatistics.getSellVolumeWeightedStockPrice();
+            windowVolumes[slot] = symbolStatistics.getWindowVolume();
+            signedVolumes[slot] = symbolStatistics.getSignedVolume();
+            orderFlowImbalances[slot] = symbolStatistics.getOrderFlowImbalance();
+        }
+
+        indexValues = new HashMap<>();
+        for (StockIndexInterface index : indices) {
+            indexValues.put(index.getName(), index.getValue());
+        }
+    }
+
+    /**
+     * Slot of a symbol within this snapshot.
+     *
+     * @return slot, or -1 if the symbol had not traded
+     */
+    private int slot(String symbol) {
+        SymbolStatistics symbolStatistics = slots.get(symbol);
+        if (symbolStatistics == null || symbolStatistics.getSlot() >= symbolCount) return -1;
+        return symbolStatistics.getSlot();
+    }
+
+    /**
+     * Get a registered stock.
+     *
+     * @throws IllegalArgumentException if the symbol is not registered
+     */
+    private StockInterface getStock(String stockSymbol) {
+
+        StockInterface stock = stocks.get(stockSymbol);
+        if (stock == null) {
+            throw new IllegalArgumentException(String.format("Unknown stock symbol %s", stockSymbol));
+        }
+        return stock;
+    }
+
+    /**
+     *
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     *
+     */
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    /**
+     *
+     */
+    public double dividendYield(String stockSymbol, double price) {
+        return getStock(stockSymbol).dividendYield(price);
+    }
+
+    /**
+     *
+     */
+    public double priceEarningsRatio(String stockSymbol, double price) {
+        return getStock(stockSymbol).priceEarningsRatio(price);
+    }
+
+    /**
+     *
+     */
+    public double lastPrice(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : lastPrices[slot];
+    }
+
+    /**
+     *
+     */
+    public double volumeWeightedStockPrice(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : volumeWeightedStockPrices[slot];
+    }
+
+    /**
+     *
+     */
+    public double volumeWeightedStockPriceMove(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : volumeWeightedStockPriceMoves[slot];
+    }
+
+    /**
+     *
+     */
+    public double buyVolumeWeightedStockPrice(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : buyVolumeWeightedStockPrices[slot];
+    }
+
+    /**
+     *
+     */
+    public double sellVolumeWeightedStockPrice(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : sellVolumeWeightedStockPrices[slot];
+    }
+
+    /**
+     *
+     */
+    public long windowVolume(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : windowVolumes[slot];
+    }
+
+    /**
+     *
+     */
+    public long signedVolume(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : signedVolumes[slot];
+    }
+
+    /**
+     *
+     */
+    public double orderFlowImbalance(String symbol) {
+        int slot = slot(symbol);
+        return slot < 0 ? 0 : orderFlowImbalances[slot];
+    }
+
+    /**
+     *
+     */
+    public double geometricMean() {
+        return geometricMean;
+    }
+
+    /**
+     *
+     */
+    public double indexValue(String name) {
+
+        Double value = indexValues.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Unknown index %s", name));
+        }
+        return value;
+    }
+}
@@ -3,6 +3,7 @@ package com.darraghmurphy.stockmarket.impl;
 import com.darraghmurphy.stockmarket.api.StockInterface;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 
 /**
  * Preferred Stock.
@@ -33,7 +34,7 @@ public class PreferredStock extends AbstractStock implements StockInterface {
      *
      */
     public double dividendYield(double price) {
-        return fixedDividend.multiply(parValue).divide(BigDecimal.valueOf(price)).doubleValue();
+        return fixedDividend.multiply(parValue).divide(BigDecimal.valueOf(price), MathContext.DECIMAL64).doubleValue();
 
     }
 
@@ -42,7 +43,7 @@ public class PreferredStock extends AbstractStock implements StockInterface {
      */
     public double priceEarningsRatio(double price) {
 
-        return BigDecimal.valueOf(price).divide(fixedDividend).doubleValue();
+        return BigDecimal.valueOf(price).divide(fixedDividend, MathContext.DECIMAL64).doubleValue();
     }
 
 
@@ -0,0 +1,152 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.PriceBarInterface;
+
+/**
+ * One minute price bar.
+ * <p/>
+ * Open, high, low and close are held as fixed point ticks, see {@link SymbolHistory#TICKS_PER_UNIT}, the notional
+ * behind the volume weighted price is kept unrounded.
+ */
+public class PriceBar implements PriceBarInterface {
+
+    private final long minute;
+
+    /**
+     * Timestamp of the earliest trade in the bar, in milliseconds.
+     */
+    private long firstTime;
+
+    /**
+     * Timestamp of the latest trade in the bar, in milliseconds.
+     */
+    private long lastTime;
+
+    private long open;
+
+    private long high;
+
+    private long low;
+
+    private long close;
+
+    private long volume;
+
+    /**
+     * Sum of traded price multiplied by quantity.
+     */
+    private double notional;
+
+    /**
+     * Constructor.
+     *
+     * @param minute    minutes since the epoch
+     * @param firstTime timestamp of the earliest trade in milliseconds
+     * @param lastTime  timestamp of the latest trade in milliseconds
+     * @param open      open price in ticks
+     * @param high      high price in ticks
+     * @param low       low price in ticks
+     * @param close     close price in ticks
+     * @param volume    number of shares traded
+     * @param notional  sum of traded price multiplied by quantity
+     */
+    PriceBar(long minute, long firstTime, long lastTime, long open, long high, long low, long close, long volume, double notional) {
+        this.minute = minute;
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.notional = notional;
+    }
+
+    /**
+     * Merge another bar covering the same minute into this bar.
+     * <p/>
+     * The other bar may hold late trades from anywhere within the minute, so the open and close are taken from
+     * whichever bar holds the earliest and latest trade. On equal timestamps the other bar is treated as recorded
+     * later.
+     */
+    void merge(PriceBar other) {
+        if (other.firstTime < firstTime) {
+            firstTime = other.firstTime;
+            open = other.open;
+        }
+        if (other.lastTime >= lastTime) {
+            lastTime = other.lastTime;
+            close = other.close;
+        }
+        high = Math.max(high, other.high);
+        low = Math.min(low, other.low);
+        volume += other.volume;
+        notional += other.notional;
+    }
+
+    /**
+     * Add a trade recorded no earlier than the trades already in the bar.
+     */
+    void add(long timestamp, long price, int quantity, double tradeNotional) {
+        lastTime = timestamp;
+        close = price;
+        high = Math.max(high, price);
+        low = Math.min(low, price);
+        volume += quantity;
+        notional += tradeNotional;
+    }
+
+    long getMinute() {
+        return minute;
+    }
+
+    /**
+     *
+     */
+    public long getStartTime() {
+        return minute * SymbolHistory.MILLIS_PER_MINUTE;
+    }
+
+    /**
+     *
+     */
+    public double getOpen() {
+        return SymbolHistory.toPrice(open);
+    }
+
+    /**
+     *
+     */
+    public double getHigh() {
+        return SymbolHistory.toPrice(high);
+    }
+
+    /**
+     *
+     */
+    public double getLow() {
+        return SymbolHistory.toPrice(low);
+    }
+
+    /**
+     *
+     */
+    public double getClose() {
+        return SymbolHistory.toPrice(close);
+    }
+
+    /**
+     *
+     */
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     *
+     */
+    public double getVolumeWeightedStockPrice() {
+        if (volume == 0) return 0;
+        return notional / (double) volume;
+    }
+}
@@ -0,0 +1,98 @@
+package com.darraghmurphy.stockmarket.impl;
+
+/**
+ * Price Weighted Index.
+ * <p/>
+ * The index value is <pre>sum(weight * price) / divisor</pre> over all constituents, constituents that have not
+ * traded contribute nothing.
+ */
+public class PriceWeightedIndex extends AbstractStockIndex {
+
+    /**
+     * Number of incremental updates after which the weighted sum is recalculated from scratch, bounding the
+     * floating point drift introduced by repeated add and subtract.
+     */
+    private static final int RECALCULATION_INTERVAL = 1024;
+
+    /**
+     * Weight of each constituent.
+     */
+    private final double[] weights;
+
+    /**
+     * Index divisor.
+     */
+    private final double divisor;
+
+    /**
+     * Running sum of weight multiplied by last traded price.
+     */
+    private double weightedSum;
+
+    /**
+     * Number of incremental updates since the last recalculation.
+     */
+    private int updatesSinceRecalculation;
+
+    /**
+     * Constructor, each constituent has a weight of one.
+     *
+     * @param name    index name
+     * @param symbols constituent stock symbols
+     * @param divisor index divisor
+     */
+    public PriceWeightedIndex(String name, String[] symbols, double divisor) {
+        this(name, symbols, unitWeights(symbols.length), divisor);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name    index name
+     * @param symbols constituent stock symbols
+     * @param weights constituent weights
+     * @param divisor index divisor
+     */
+    public PriceWeightedIndex(String name, String[] symbols, double[] weights, double divisor) {
+        super(name, symbols);
+
+        if (weights.length != symbols.length) {
+            throw new IllegalArgumentException(String.format("Index %s has %d constituents but %d weights", name, symbols.length, weights.length));
+        }
+        if (divisor <= 0) throw new IllegalArgumentException(String.format("Invalid divisor %f", divisor));
+
+        this.weights = weights.clone();
+        this.divisor = divisor;
+    }
+
+    /**
+     *
+     */
+    double apply(int constituent, double previousPrice, double price) {
+
+        if (++updatesSinceRecalculation == RECALCULATION_INTERVAL) {
+            updatesSinceRecalculation = 0;
+
+            double sum = 0;
+            for (int i = 0; i < prices.length; i++) {
+                sum += weights[i] * prices[i];
+            }
+            weightedSum = sum;
+        } else {
+            weightedSum += weights[constituent] * (price - previousPrice);
+        }
+
+        return weightedSum / divisor;
+    }
+
+    /**
+     * Create an array of unit weights.
+     */
+    private static double[] unitWeights(int length) {
+        double[] weights = new double[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = 1d;
+        }
+        return weights;
+    }
+}
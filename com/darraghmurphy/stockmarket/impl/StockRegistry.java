@@ -0,0 +1,229 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.StockInterface;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable registry of stock reference data.
+ * <p/>
+ * Stocks are held in an open addressing hash table backed by two parallel arrays, so a lookup is a hash, an array
+ * probe and a string comparison with no locking. A registry is never modified, changes create a new registry which
+ * the market publishes with a single volatile write (copy on write).
+ */
+public final class StockRegistry {
+
+    /**
+     * Registry with no stocks.
+     */
+    public static final StockRegistry EMPTY = new StockRegistry(Collections.<StockInterface>emptyList());
+
+    /**
+     * Stock symbols, indexed by hash slot, null for an empty slot.
+     */
+    private final String[] symbols;
+
+    /**
+     * Stocks, indexed by hash slot.
+     */
+    private final StockInterface[] stocks;
+
+    /**
+     * Mask applied to a hash to give a slot, table length is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Number of stocks.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     * <p/>
+     * If a symbol appears more than once the last stock with the symbol wins.
+     *
+     * @param stocks stocks to register
+     */
+    public StockRegistry(Collection<? extends StockInterface> stocks) {
+
+        /** Keep the load factor at or below 0.5 so that probe sequences stay short */
+        int capacity = 2;
+        while (capacity < stocks.size() * 2) {
+            capacity <<= 1;
+        }
+
+        this.symbols = new String[capacity];
+        this.stocks = new StockInterface[capacity];
+        this.mask = capacity - 1;
+
+        int count = 0;
+        for (StockInterface stock : stocks) {
+            int slot = slot(stock.getSymbol());
+            if (symbols[slot] == null) count++;
+            symbols[slot] = stock.getSymbol();
+            this.stocks[slot] = stock;
+        }
+        this.size = count;
+    }
+
+    /**
+     * Constructor taking ownership of a populated table.
+     */
+    private StockRegistry(String[] symbols, StockInterface[] stocks, int size) {
+        this.symbols = symbols;
+        this.stocks = stocks;
+        this.mask = symbols.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * Get a stock by symbol.
+     *
+     * @param symbol stock symbol
+     * @return stock, or null if the symbol is not registered
+     */
+    public StockInterface get(String symbol) {
+
+        int slot = mix(symbol.hashCode()) & mask;
+        while (true) {
+            String candidate = symbols[slot];
+            if (candidate == null) return null;
+            if (candidate.equals(symbol)) return stocks[slot];
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Get a stock by an ASCII symbol held in a buffer, without creating a String.
+     * <p/>
+     * The hash is computed over the bytes exactly as String.hashCode() computes it over the characters, so the
+     * probe sequence is the same as for {@link #get(String)}.
+     *
+     * @param buffer buffer holding the symbol
+     * @param offset offset of the symbol within the buffer
+     * @param length symbol length in bytes
+     * @return stock, or null if the symbol is not registered
+     */
+    public StockInterface get(ByteBuffer buffer, int offset, int length) {
+
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (buffer.get(offset + i) & 0xFF);
+        }
+
+        int slot = mix(hash) & mask;
+        while (true) {
+            String candidate = symbols[slot];
+            if (candidate == null) return null;
+            if (matches(candidate, buffer, offset, length)) return stocks[slot];
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Compare a symbol with bytes held in a buffer.
+     */
+    private static boolean matches(String symbol, ByteBuffer buffer, int offset, int length) {
+
+        if (symbol.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != (buffer.get(offset + i) & 0xFF)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if a symbol is registered.
+     *
+     * @param symbol stock symbol
+     * @return true if registered
+     */
+    public boolean contains(String symbol) {
+        return get(symbol) != null;
+    }
+
+    /**
+     * Get number of stocks.
+     *
+     * @return number of stocks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get all registered stocks, in no particular order.
+     *
+     * @return stocks
+     */
+    public List<StockInterface> getStocks() {
+
+        List<StockInterface> result = new ArrayList<>(size);
+        for (StockInterface stock : stocks) {
+            if (stock != null) result.add(stock);
+        }
+        return result;
+    }
+
+    /**
+     * Create a new registry with the given stocks added, replacing any existing stocks with the same symbols.
+     *
+     * @param additions stocks to add
+     * @return new registry
+     */
+    public StockRegistry with(Collection<? extends StockInterface> additions) {
+
+        List<StockInterface> merged = getStocks();
+        merged.addAll(additions);
+        return new StockRegistry(merged);
+    }
+
+    /**
+     * Create a new registry with the given stock added, replacing any existing stock with the same symbol.
+     * <p/>
+     * While the load factor allows, the table is copied and the stock placed into its slot without rehashing the
+     * existing stocks. Registering many stocks is cheaper done once with {@link #with(Collection)}.
+     *
+     * @param stock stock to add
+     * @return new registry
+     */
+    public StockRegistry with(StockInterface stock) {
+
+        int slot = slot(stock.getSymbol());
+        boolean added = symbols[slot] == null;
+        if (added && (size + 1) * 2 > symbols.length) {
+            return with(Collections.singletonList(stock));
+        }
+
+        String[] newSymbols = symbols.clone();
+        StockInterface[] newStocks = stocks.clone();
+        newSymbols[slot] = stock.getSymbol();
+        newStocks[slot] = stock;
+        return new StockRegistry(newSymbols, newStocks, added ? size + 1 : size);
+    }
+
+    /**
+     * Find the slot holding a symbol, or the empty slot where it belongs.
+     */
+    private int slot(String symbol) {
+
+        int slot = mix(symbol.hashCode()) & mask;
+        while (symbols[slot] != null && !symbols[slot].equals(symbol)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spread the hash code, short symbols have poorly distributed low bits.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
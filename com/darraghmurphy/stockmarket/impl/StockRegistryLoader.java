@@ -0,0 +1,119 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.StockInterface;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk loader of stock reference data.
+ * <p/>
+ * Reads comma separated stock definitions laid out as the sample data table, one stock per line:
+ * <pre>
+ * STOCK SYMBOL,TYPE,LAST DIVIDEND,FIXED DIVIDEND,PAR VALUE
+ * TEA,Common,0,,100
+ * GIN,Preferred,8,2%,100
+ * </pre>
+ * Blank lines, lines starting with '#' and a header line starting with "STOCK SYMBOL" are ignored. The fixed
+ * dividend may be given as a fraction (0.02) or a percentage (2%).
+ */
+public final class StockRegistryLoader {
+
+    /**
+     * Number of columns in a stock definition.
+     */
+    private static final int COLUMNS = 5;
+
+    /**
+     * Constructor.
+     */
+    private StockRegistryLoader() {
+    }
+
+    /**
+     * Load stock definitions from a file.
+     *
+     * @param file stock definition file
+     * @return stocks in file order
+     * @throws IOException Error reading the file.
+     */
+    public static List<StockInterface> load(File file) throws IOException {
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8"))) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Load stock definitions from a reader.
+     *
+     * @param reader stock definitions
+     * @return stocks in input order
+     * @throws IOException Error reading the input.
+     */
+    public static List<StockInterface> load(Reader reader) throws IOException {
+
+        List<StockInterface> stocks = new ArrayList<>();
+        BufferedReader in = new BufferedReader(reader);
+
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.toUpperCase().startsWith("STOCK SYMBOL")) continue;
+
+            stocks.add(parseStock(line, lineNumber));
+        }
+        return stocks;
+    }
+
+    /**
+     * Parse a single stock definition.
+     */
+    private static StockInterface parseStock(String line, int lineNumber) {
+
+        String[] columns = line.split(",", -1);
+        if (columns.length != COLUMNS) {
+            throw new IllegalArgumentException(String.format("Line %d: expected %d columns but found %d", lineNumber, COLUMNS, columns.length));
+        }
+
+        String symbol = columns[0].trim();
+        String type = columns[1].trim();
+        if (symbol.isEmpty()) throw new IllegalArgumentException(String.format("Line %d: missing stock symbol", lineNumber));
+
+        Double parValue = parseNumber(columns[4], lineNumber);
+
+        if ("Common".equalsIgnoreCase(type)) {
+            return new CommonStock(symbol, parseNumber(columns[2], lineNumber), parValue);
+        }
+        if ("Preferred".equalsIgnoreCase(type)) {
+            return new PreferredStock(symbol, parValue, parseNumber(columns[3], lineNumber));
+        }
+        throw new IllegalArgumentException(String.format("Line %d: unknown stock type %s", lineNumber, type));
+    }
+
+    /**
+     * Parse a numeric column, a trailing '%' divides the value by one hundred.
+     */
+    private static Double parseNumber(String column, int lineNumber) {
+
+        String value = column.trim();
+        try {
+            if (value.endsWith("%")) {
+                return Double.parseDouble(value.substring(0, value.length() - 1).trim()) / 100d;
+            }
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Line %d: invalid number '%s'", lineNumber, value), e);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tiered trade history of a single stock.
+ * <p/>
+ * Recent trades are held raw in primitive arrays sorted by timestamp. Once a trade is older than the raw retention
+ * period, measured back from the most recent trade, it is compacted into a one minute bar. Bars are delta encoded
+ * against the previous bar as variable length integers and appended to blocks of {@link #BARS_PER_BLOCK} bars, so a
+ * compacted minute typically costs around twenty bytes rather than one Trade, Calendar and BigDecimal per trade.
+ * <p/>
+ * Prefix sums of notional and volume are also kept over every trade of the session, so the volume weighted stock
+ * price of any time range is answered without a scan.
+ * <p/>
+ * Bar prices are held as fixed point ticks of 1/{@link #TICKS_PER_UNIT}, while raw trades, bar notional and the
+ * prefix sums keep the traded prices as recorded. All methods are synchronized on the instance,
+ * the writer and chart readers only contend when they touch the same stock.
+ */
+class SymbolHistory {
+
+    /**
+     * Fixed point scale of prices held in the history.
+     */
+    static final long TICKS_PER_UNIT = 10000;
+
+    /**
+     * Milliseconds per minute.
+     */
+    static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    /**
+     * Number of bars encoded into a block before it is sealed.
+     */
+    private static final int BARS_PER_BLOCK = 64;
+
+    /**
+     * Initial capacity of the raw tier arrays.
+     */
+    private static final int INITIAL_RAW_CAPACITY = 16;
+
+    /**
+     * Raw retention period in milliseconds.
+     */
+    private final long rawRetention;
+
+    /**
+     * Raw trade timestamps in milliseconds, sorted ascending.
+     */
+    private long[] rawTimestamps = new long[INITIAL_RAW_CAPACITY];
+
+    /**
+     * Raw trade prices.
+     */
+    private double[] rawPrices = new double[INITIAL_RAW_CAPACITY];
+
+    /**
+     * Raw trade quantities.
+     */
+    private int[] rawQuantities = new int[INITIAL_RAW_CAPACITY];
+
+    /**
+     * Number of raw trades.
+     */
+    private int rawSize;
+
+    /**
+     * Timestamp of the most recent trade.
+     */
+    private long latestTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Compacted bar blocks, the last block is open for appends.
+     */
+    private final List<BarBlock> blocks = new ArrayList<>();
+
+    /**
+     * Prefix sums of notional and volume over every trade.
+     */
+    private final VolumePrefixSums prefixSums = new VolumePrefixSums();
+
+    /**
+     * Constructor.
+     *
+     * @param rawRetention raw retention period in milliseconds
+     */
+    SymbolHistory(long rawRetention) {
+        this.rawRetention = rawRetention;
+    }
+
+    /**
+     * Record a trade.
+     *
+     * @param timestamp      trade timestamp in milliseconds
+     * @param price          traded price
+     * @param numberOfShares number of shares
+     */
+    synchronized void record(long timestamp, double price, int numberOfShares) {
+
+        /** Trades normally arrive in order, so the insertion point is almost always the end */
+        int position = rawSize;
+        while (position > 0 && rawTimestamps[position - 1] > timestamp) {
+            position--;
+        }
+
+        if (rawSize == rawTimestamps.length) {
+            int capacity = rawSize * 2;
+            rawTimestamps = Arrays.copyOf(rawTimestamps, capacity);
+            rawPrices = Arrays.copyOf(rawPrices, capacity);
+            rawQuantities = Arrays.copyOf(rawQuantities, capacity);
+        }
+        if (position < rawSize) {
+            System.arraycopy(rawTimestamps, position, rawTimestamps, position + 1, rawSize - position);
+            System.arraycopy(rawPrices, position, rawPrices, position + 1, rawSize - position);
+            System.arraycopy(rawQuantities, position, rawQuantities, position + 1, rawSize - position);
+        }
+        rawTimestamps[position] = timestamp;
+        rawPrices[position] = price;
+        rawQuantities[position] = numberOfShares;
+        rawSize++;
+
+        prefixSums.add(timestamp, price, numberOfShares);
+
+        if (timestamp > latestTimestamp) {
+            latestTimestamp = timestamp;
+            compact(minuteOf(latestTimestamp - rawRetention));
+        }
+    }
+
+    /**
+     * Get the one minute bars starting within a time range.
+     *
+     * @param from start of range in milliseconds, inclusive
+     * @param to   end of range in milliseconds, exclusive
+     * @return bars ordered by start time
+     */
+    synchronized List<PriceBar> bars(long from, long to) {
+
+        long fromMinute = minuteOf(from + MILLIS_PER_MINUTE - 1);
+        long toMinute = minuteOf(to + MILLIS_PER_MINUTE - 1);
+
+        /** Late trades may produce more than one bar for a minute, these are merged in time order */
+        TreeMap<Long, PriceBar> bars = new TreeMap<>();
+
+        for (BarBlock block : blocks) {
+            if (block.maxMinute >= fromMinute && block.minMinute < toMinute) {
+                block.decode(fromMinute, toMinute, bars);
+            }
+        }
+
+        int start = 0;
+        while (start < rawSize && minuteOf(rawTimestamps[start]) < fromMinute) {
+            start++;
+        }
+        int end = start;
+        while (end < rawSize && minuteOf(rawTimestamps[end]) < toMinute) {
+            end++;
+        }
+        while (start < end) {
+            int runEnd = minuteEnd(start, end);
+            PriceBar bar = aggregate(start, runEnd);
+            PriceBar existing = bars.get(bar.getMinute());
+            if (existing == null) {
+                bars.put(bar.getMinute(), bar);
+            } else {
+                existing.merge(bar);
+            }
+            start = runEnd;
+        }
+
+        return new ArrayList<>(bars.values());
+    }
+
+    /**
+     * Calculate the volume weighted stock price of the trades within a time range.
+     *
+     * @param from start of range in milliseconds, inclusive
+     * @param to   end of range in milliseconds, exclusive
+     * @return volume weighted stock price, or 0 if no trades fall within the range
+     */
+    synchronized double volumeWeightedStockPrice(long from, long to) {
+        return prefixSums.volumeWeightedStockPrice(from, to);
+    }
+
+    /**
+     * Get number of trades held raw.
+     *
+     * @return raw trade count
+     */
+    synchronized int getRawTradeCount() {
+        return rawSize;
+    }
+
+    /**
+     * Get number of bytes of encoded bar data.
+     *
+     * @return encoded size
+     */
+    synchronized long getCompactedSize() {
+        long size = 0;
+        for (BarBlock block : blocks) {
+            size += block.length;
+        }
+        return size;
+    }
+
+    /**
+     * Compact raw trades in minutes before the given minute into bars.
+     * <p/>
+     * The raw tier is sorted by timestamp, so each minute is a contiguous run of trades that is folded straight into
+     * the block encoder without creating objects per trade or per bar.
+     */
+    private void compact(long beforeMinute) {
+
+        if (rawSize == 0 || minuteOf(rawTimestamps[0]) >= beforeMinute) return;
+
+        int end = 0;
+        while (end < rawSize && minuteOf(rawTimestamps[end]) < beforeMinute) {
+            end++;
+        }
+
+        int start = 0;
+        while (start < end) {
+            int runEnd = minuteEnd(start, end);
+
+            long open = toTicks(rawPrices[start]);
+            long high = open;
+            long low = open;
+            long volume = 0;
+            double notional = 0;
+            for (int i = start; i < runEnd; i++) {
+                long price = toTicks(rawPrices[i]);
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+                volume += rawQuantities[i];
+                notional += rawPrices[i] * rawQuantities[i];
+            }
+
+            BarBlock block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            if (block == null || block.barCount == BARS_PER_BLOCK) {
+                if (block != null) block.seal();
+                block = new BarBlock();
+                blocks.add(block);
+            }
+            block.append(minuteOf(rawTimestamps[start]), rawTimestamps[start], rawTimestamps[runEnd - 1],
+                    open, high, low, toTicks(rawPrices[runEnd - 1]), volume, notional);
+
+            start = runEnd;
+        }
+
+        rawSize -= end;
+        System.arraycopy(rawTimestamps, end, rawTimestamps, 0, rawSize);
+        System.arraycopy(rawPrices, end, rawPrices, 0, rawSize);
+        System.arraycopy(rawQuantities, end, rawQuantities, 0, rawSize);
+    }
+
+    /**
+     * End of the run of raw trades from start, before end, that fall in the same minute.
+     */
+    private int minuteEnd(int start, int end) {
+
+        long minute = minuteOf(rawTimestamps[start]);
+        int runEnd = start + 1;
+        while (runEnd < end && minuteOf(rawTimestamps[runEnd]) == minute) {
+            runEnd++;
+        }
+        return runEnd;
+    }
+
+    /**
+     * Aggregate the raw trades [start, end) of a single minute into a bar.
+     */
+    private PriceBar aggregate(int start, int end) {
+
+        PriceBar bar = null;
+        for (int i = start; i < end; i++) {
+            long price = toTicks(rawPrices[i]);
+            long timestamp = rawTimestamps[i];
+            double notional = rawPrices[i] * rawQuantities[i];
+            if (bar == null) {
+                bar = new PriceBar(minuteOf(timestamp), timestamp, timestamp, price, price, price, price, rawQuantities[i], notional);
+            } else {
+                bar.add(timestamp, price, rawQuantities[i], notional);
+            }
+        }
+        return bar;
+    }
+
+    /**
+     * Largest price in ticks, so that tick deltas cannot overflow and ticks convert exactly to and from a double.
+     */
+    static final long MAX_TICKS = 1L << 52;
+
+    /**
+     * Check a price converts to at least one tick and no more than {@link #MAX_TICKS}.
+     */
+    static boolean fitsTicks(double price) {
+        if (!(price > 0) || price * TICKS_PER_UNIT > MAX_TICKS) return false;
+        return toTicks(price) >= 1;
+    }
+
+    /**
+     * Convert a price to ticks.
+     */
+    static long toTicks(double price) {
+        return Math.round(price * TICKS_PER_UNIT);
+    }
+
+    /**
+     * Convert ticks to a price.
+     */
+    static double toPrice(long ticks) {
+        return (double) ticks / (double) TICKS_PER_UNIT;
+    }
+
+    /**
+     * Minutes since the epoch, rounding down.
+     */
+    static long minuteOf(long millis) {
+        return millis >= 0 ? millis / MILLIS_PER_MINUTE : (millis - MILLIS_PER_MINUTE + 1) / MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Block of delta encoded bars.
+     * <p/>
+     * Each bar is written as variable length integers:
+     * <pre>minute - previous minute, first trade time - minute start, last trade time - first trade time,
+     * open - previous close, high - open, open - low, close - low, volume</pre>
+     * followed by the notional as the eight bytes of a double, so the volume weighted price of a bar is not rounded
+     * to the tick. The signed deltas are zig-zag encoded, the others are never negative. The first bar of a block is encoded
+     * against zero so each block decodes independently. The trade times let bars of the same minute, produced by
+     * late trades, be merged with the open and close chosen by time.
+     */
+    private static final class BarBlock {
+
+        private byte[] data = new byte[256];
+
+        private int length;
+
+        private int barCount;
+
+        private long minMinute = Long.MAX_VALUE;
+
+        private long maxMinute = Long.MIN_VALUE;
+
+        private long previousMinute;
+
+        private long previousClose;
+
+        /**
+         * Append a bar, prices in ticks.
+         */
+        void append(long minute, long firstTime, long lastTime, long open, long high, long low, long close, long volume, double notional) {
+
+            writeSigned(minute - previousMinute);
+            writeUnsigned(firstTime - minute * MILLIS_PER_MINUTE);
+            writeUnsigned(lastTime - firstTime);
+            writeSigned(open - previousClose);
+            writeUnsigned(high - open);
+            writeUnsigned(open - low);
+            writeUnsigned(close - low);
+            writeUnsigned(volume);
+            writeDouble(notional);
+
+            previousMinute = minute;
+            previousClose = close;
+            minMinute = Math.min(minMinute, minute);
+            maxMinute = Math.max(maxMinute, minute);
+            barCount++;
+        }
+
+        /**
+         * Release the spare capacity of a full block.
+         */
+        void seal() {
+            data = Arrays.copyOf(data, length);
+        }
+
+        /**
+         * Decode the bars within [fromMinute, toMinute) into the given map, merging bars for the same minute.
+         */
+        void decode(long fromMinute, long toMinute, Map<Long, PriceBar> bars) {
+
+            int[] position = new int[1];
+            long minute = 0;
+            long close = 0;
+            for (int i = 0; i < barCount; i++) {
+                minute += readSigned(position);
+                long firstTime = minute * MILLIS_PER_MINUTE + readUnsigned(position);
+                long lastTime = firstTime + readUnsigned(position);
+                long open = close + readSigned(position);
+                long high = open + readUnsigned(position);
+                long low = open - readUnsigned(position);
+                close = low + readUnsigned(position);
+                long volume = readUnsigned(position);
+                double notional = readDouble(position);
+
+                if (minute < fromMinute || minute >= toMinute) continue;
+
+                PriceBar bar = new PriceBar(minute, firstTime, lastTime, open, high, low, close, volume, notional);
+                PriceBar existing = bars.get(minute);
+                if (existing == null) {
+                    bars.put(minute, bar);
+                } else {
+                    existing.merge(bar);
+                }
+            }
+        }
+
+        private void writeDouble(double value) {
+            if (length + 8 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                data[length++] = (byte) (bits >>> (8 * i));
+            }
+        }
+
+        private double readDouble(int[] position) {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits |= (data[position[0]++] & 0xFFL) << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        private void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        private void writeUnsigned(long value) {
+            if (length + 10 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private long readSigned(int[] position) {
+            long value = readUnsigned(position);
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readUnsigned(int[] position) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
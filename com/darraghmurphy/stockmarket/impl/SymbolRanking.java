@@ -0,0 +1,218 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incrementally maintained ranking of stock symbols by a single metric, highest value first.
+ * <p/>
+ * The ranking is an indexed binary max-heap held in parallel arrays, with the heap position of each symbol kept by
+ * its statistics slot. An update moves one entry up or down the heap in O(log n) without allocating. A top N query
+ * walks the heap best first, visiting O(N) entries rather than evaluating every stock in the market.
+ * <p/>
+ * Updates hold the write lock and queries hold the read lock, so concurrent queries do not block each other and only
+ * wait for the update in progress. A query holds the lock for its O(N log N) walk of the heap, not for a scan of
+ * every ranked symbol.
+ */
+public class SymbolRanking {
+
+    /**
+     * Initial capacity.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Guards the heap.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Symbols by heap position.
+     */
+    private String[] symbols = new String[INITIAL_CAPACITY];
+
+    /**
+     * Values by heap position.
+     */
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    /**
+     * Statistics slots by heap position.
+     */
+    private int[] slots = new int[INITIAL_CAPACITY];
+
+    /**
+     * Heap positions by statistics slot, -1 for a slot not yet ranked.
+     */
+    private int[] positions = newPositions(INITIAL_CAPACITY, new int[0]);
+
+    /**
+     * Number of ranked symbols.
+     */
+    private int size;
+
+    /**
+     * Update the ranked value for a symbol.
+     *
+     * @param slot   statistics slot of the symbol
+     * @param symbol stock symbol
+     * @param value  metric value
+     */
+    public void update(int slot, String symbol, double value) {
+
+        lock.writeLock().lock();
+        try {
+            updateLocked(slot, symbol, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Update the ranked value for a symbol holding the write lock.
+     */
+    private void updateLocked(int slot, String symbol, double value) {
+
+        if (slot >= positions.length) {
+            positions = newPositions(Math.max(slot + 1, positions.length * 2), positions);
+        }
+
+        int position = positions[slot];
+        if (position >= 0 && Double.compare(values[position], value) == 0) return;
+
+        if (position < 0) {
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            position = size;
+            symbols[position] = symbol;
+            slots[position] = slot;
+            positions[slot] = position;
+            size++;
+        }
+
+        values[position] = value;
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Get the symbols with the highest values.
+     *
+     * @param n maximum number of symbols to return
+     * @return symbols ordered by value descending
+     */
+    public List<String> top(int n) {
+
+        if (n < 0) throw new IllegalArgumentException(String.format("Invalid parameter %d", n));
+
+        lock.readLock().lock();
+        try {
+            return walk(symbols, values, size, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best first walk of the heap, the children of a heap entry are only candidates once the entry has been taken.
+     *
+     * @return symbols ordered by value descending
+     */
+    private static List<String> walk(final String[] symbols, final double[] values, int size, int n) {
+
+        List<String> result = new ArrayList<>(Math.min(n, size));
+        if (n == 0 || size == 0) return result;
+
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(Math.min(2 * n + 1, size), new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return higher(symbols, values, a, b) ? -1 : higher(symbols, values, b, a) ? 1 : 0;
+            }
+        });
+        candidates.add(0);
+
+        while (result.size() < n && !candidates.isEmpty()) {
+            int position = candidates.poll();
+            result.add(symbols[position]);
+
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                candidates.add(child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Move an entry towards the root while it ranks above its parent.
+     *
+     * @return new position
+     */
+    private int siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!higher(symbols, values, position, parent)) break;
+            swap(position, parent);
+            position = parent;
+        }
+        return position;
+    }
+
+    /**
+     * Move an entry away from the root while a child ranks above it.
+     */
+    private void siftDown(int position) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) return;
+            if (child + 1 < size && higher(symbols, values, child + 1, child)) child++;
+            if (!higher(symbols, values, child, position)) return;
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    /**
+     * True if the entry at position a ranks above the entry at position b, ties are ordered by symbol.
+     */
+    private static boolean higher(String[] symbols, double[] values, int a, int b) {
+        int result = Double.compare(values[a], values[b]);
+        if (result != 0) return result > 0;
+        return symbols[a].compareTo(symbols[b]) < 0;
+    }
+
+    /**
+     * Swap two heap entries.
+     */
+    private void swap(int a, int b) {
+
+        String symbol = symbols[a];
+        symbols[a] = symbols[b];
+        symbols[b] = symbol;
+
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+
+        int slot = slots[a];
+        slots[a] = slots[b];
+        slots[b] = slot;
+
+        positions[slots[a]] = a;
+        positions[slots[b]] = b;
+    }
+
+    /**
+     * Create a slot to heap position array, copying existing positions and marking the rest unranked.
+     */
+    private static int[] newPositions(int capacity, int[] existing) {
+        int[] result = Arrays.copyOf(existing, capacity);
+        Arrays.fill(result, existing.length, capacity, -1);
+        return result;
+    }
+}
@@ -0,0 +1,261 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.StockInterface;
+import com.darraghmurphy.stockmarket.api.TradeInterface.TradeStatus;
+
+/**
+ * Per symbol trade statistics, maintained incrementally as each trade is recorded.
+ * <p/>
+ * Updates are expected to be made by a single writer holding the market lock. Derived values are published
+ * through volatile fields so that readers never observe a volume weighted stock price built from a half applied trade.
+ */
+public class SymbolStatistics {
+
+    /**
+     * Stock the statistics relate to, replaced when the reference data of the symbol changes.
+     */
+    private volatile StockInterface stock;
+
+    /**
+     * Dividend yield at a price of one. Both the common and preferred formulas divide a fixed amount by the price,
+     * so the yield at any price is this value divided by the price.
+     */
+    private volatile double unitDividendYield;
+
+    /**
+     * Position of the statistics in the market's slot array, assigned in order of first trade.
+     */
+    private final int slot;
+
+    /**
+     * Number of shares traded within the volume weighted stock price window.
+     */
+    private long windowVolume;
+
+    /**
+     * Sum of traded price multiplied by quantity within the volume weighted stock price window.
+     */
+    private double windowNotional;
+
+    /**
+     * Number of shares bought within the window.
+     */
+    private long windowBuyVolume;
+
+    /**
+     * Sum of traded price multiplied by quantity of BUY trades within the window.
+     */
+    private double windowBuyNotional;
+
+    /**
+     * Number of shares sold within the window.
+     */
+    private long windowSellVolume;
+
+    /**
+     * Sum of traded price multiplied by quantity of SELL trades within the window.
+     */
+    private double windowSellNotional;
+
+    /**
+     * Price of the first trade recorded within the window, used as the reference for price moves.
+     */
+    private double windowOpenPrice;
+
+    /**
+     * Published number of shares traded within the window.
+     */
+    private volatile long publishedWindowVolume;
+
+    /**
+     * Published volume weighted stock price.
+     */
+    private volatile double volumeWeightedStockPrice;
+
+    /**
+     * Published volume weighted stock price of BUY trades.
+     */
+    private volatile double buyVolumeWeightedStockPrice;
+
+    /**
+     * Published volume weighted stock price of SELL trades.
+     */
+    private volatile double sellVolumeWeightedStockPrice;
+
+    /**
+     * Published shares bought less shares sold within the window.
+     */
+    private volatile long signedVolume;
+
+    /**
+     * Published order flow imbalance within the window.
+     */
+    private volatile double orderFlowImbalance;
+
+    /**
+     * Price of the most recently recorded trade.
+     */
+    private volatile double lastPrice;
+
+    /**
+     * Constructor.
+     *
+     * @param stock stock
+     * @param slot  slot
+     */
+    public SymbolStatistics(StockInterface stock, int slot) {
+        this.slot = slot;
+        setStock(stock);
+    }
+
+    /**
+     * Replace the stock reference data, the trade statistics are kept.
+     *
+     * @param stock stock with the same symbol
+     */
+    public void setStock(StockInterface stock) {
+        this.unitDividendYield = stock.dividendYield(1d);
+        this.stock = stock;
+    }
+
+    /**
+     * Apply a trade to the statistics.
+     *
+     * @param tradeStatus    buy or sell indicator
+     * @param numberOfShares number of shares
+     * @param price          traded price
+     * @param inWindow       true if the trade falls within the volume weighted stock price window
+     */
+    public void record(TradeStatus tradeStatus, int numberOfShares, double price, boolean inWindow) {
+
+        if (inWindow) {
+            if (windowVolume == 0) windowOpenPrice = price;
+
+            double notional = price * (double) numberOfShares;
+
+            windowVolume += numberOfShares;
+            windowNotional += notional;
+
+            if (tradeStatus == TradeStatus.BUY) {
+                windowBuyVolume += numberOfShares;
+                windowBuyNotional += notional;
+                buyVolumeWeightedStockPrice = divide(windowBuyNotional, windowBuyVolume);
+            } else {
+                windowSellVolume += numberOfShares;
+                windowSellNotional += notional;
+                sellVolumeWeightedStockPrice = divide(windowSellNotional, windowSellVolume);
+            }
+
+            publishedWindowVolume = windowVolume;
+            volumeWeightedStockPrice = divide(windowNotional, windowVolume);
+            signedVolume = windowBuyVolume - windowSellVolume;
+            orderFlowImbalance = divide(windowBuyVolume - windowSellVolume, windowVolume);
+        }
+        lastPrice = price;
+    }
+
+    /**
+     * Divide, treating an empty window as zero.
+     */
+    private static double divide(double numerator, long volume) {
+        return volume == 0 ? 0 : numerator / (double) volume;
+    }
+
+    /**
+     *
+     */
+    public StockInterface getStock() {
+        return stock;
+    }
+
+    /**
+     *
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get number of shares traded within the window.
+     *
+     * @return window volume
+     */
+    public long getWindowVolume() {
+        return publishedWindowVolume;
+    }
+
+    /**
+     * Get volume weighted stock price of the trades within the window.
+     *
+     * @return volume weighted stock price, or 0 if no trades fall within the window
+     */
+    public double getVolumeWeightedStockPrice() {
+        return volumeWeightedStockPrice;
+    }
+
+    /**
+     * Get volume weighted stock price of the BUY trades within the window.
+     *
+     * @return buy volume weighted stock price, or 0 if no BUY trades fall within the window
+     */
+    public double getBuyVolumeWeightedStockPrice() {
+        return buyVolumeWeightedStockPrice;
+    }
+
+    /**
+     * Get volume weighted stock price of the SELL trades within the window.
+     *
+     * @return sell volume weighted stock price, or 0 if no SELL trades fall within the window
+     */
+    public double getSellVolumeWeightedStockPrice() {
+        return sellVolumeWeightedStockPrice;
+    }
+
+    /**
+     * Get the number of shares bought less the number of shares sold within the window.
+     *
+     * @return signed volume
+     */
+    public long getSignedVolume() {
+        return signedVolume;
+    }
+
+    /**
+     * Get the order flow imbalance within the window, (buy volume - sell volume) / total volume.
+     *
+     * @return imbalance between -1 (all sells) and 1 (all buys), or 0 if no trades fall within the window
+     */
+    public double getOrderFlowImbalance() {
+        return orderFlowImbalance;
+    }
+
+    /**
+     * Get the relative move of the volume weighted stock price from the first trade price within the window.
+     *
+     * @return relative move, or 0 if no trades fall within the window
+     */
+    public double getVolumeWeightedStockPriceMove() {
+        if (publishedWindowVolume == 0 || windowOpenPrice == 0) return 0;
+        return (volumeWeightedStockPrice - windowOpenPrice) / windowOpenPrice;
+    }
+
+    /**
+     * Get price of the most recently recorded trade.
+     *
+     * @return last price, or 0 if no trades have been recorded
+     */
+    public double getLastPrice() {
+        return lastPrice;
+    }
+
+    /**
+     * Get dividend yield at the last traded price.
+     *
+     * @return dividend yield, or 0 if no trades have been recorded
+     */
+    public double getDividendYield() {
+        double price = lastPrice;
+        if (price <= 0) return 0;
+        return unitDividendYield / price;
+    }
+}
@@ -86,4 +86,11 @@ public class Trade implements TradeInterface {
         return numberOfShares;
     }
 
+    /**
+     *
+     */
+    public TradeStatus getTradeStatus() {
+        return tradeStatus;
+    }
+
 }
@@ -0,0 +1,122 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.PriceBarInterface;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intraday trade history of all stocks, kept raw for recent trades and compacted into one minute bars thereafter.
+ * <p/>
+ * Trades are expected to be recorded by a single writer.
+ */
+public class TradeHistory {
+
+    /**
+     * History by stock symbol.
+     */
+    private final ConcurrentHashMap<String, SymbolHistory> histories = new ConcurrentHashMap<>();
+
+    /**
+     * Raw retention period in milliseconds.
+     */
+    private final long rawRetention;
+
+    /**
+     * Constructor.
+     *
+     * @param rawRetentionMinutes minutes, back from the most recent trade of a stock, for which trades are held raw
+     */
+    public TradeHistory(int rawRetentionMinutes) {
+
+        if (rawRetentionMinutes < 0) throw new IllegalArgumentException(String.format("Invalid parameter %d", rawRetentionMinutes));
+
+        this.rawRetention = rawRetentionMinutes * SymbolHistory.MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Check a price can be recorded, bar prices are held in ticks of 1/10000 so a price must round to at least one
+     * tick and be small enough for tick arithmetic not to overflow.
+     *
+     * @param price traded price
+     * @return true if the price can be recorded
+     */
+    public static boolean isRecordablePrice(double price) {
+        return SymbolHistory.fitsTicks(price);
+    }
+
+    /**
+     * Record a trade.
+     *
+     * @param symbol         stock symbol
+     * @param timestamp      trade timestamp in milliseconds
+     * @param price          traded price
+     * @param numberOfShares number of shares
+     */
+    public void record(String symbol, long timestamp, double price, int numberOfShares) {
+
+        SymbolHistory history = histories.get(symbol);
+        if (history == null) {
+            history = new SymbolHistory(rawRetention);
+            histories.put(symbol, history);
+        }
+        history.record(timestamp, price, numberOfShares);
+    }
+
+    /**
+     * Get the one minute bars of a stock starting within a time range.
+     *
+     * @param symbol stock symbol
+     * @param from   start of range in milliseconds, inclusive
+     * @param to     end of range in milliseconds, exclusive
+     * @return bars ordered by start time
+     */
+    public List<PriceBarInterface> bars(String symbol, long from, long to) {
+
+        SymbolHistory history = histories.get(symbol);
+        if (history == null) return Collections.emptyList();
+
+        return Collections.<PriceBarInterface>unmodifiableList(history.bars(from, to));
+    }
+
+    /**
+     * Calculate the volume weighted stock price of a stock's trades within a time range.
+     *
+     * @param symbol stock symbol
+     * @param from   start of range in milliseconds, inclusive
+     * @param to     end of range in milliseconds, exclusive
+     * @return volume weighted stock price, or 0 if no trades fall within the range
+     */
+    public double volumeWeightedStockPrice(String symbol, long from, long to) {
+
+        SymbolHistory history = histories.get(symbol);
+        if (history == null) return 0;
+
+        return history.volumeWeightedStockPrice(from, to);
+    }
+
+    /**
+     * Get number of trades of a stock still held raw.
+     *
+     * @param symbol stock symbol
+     * @return raw trade count
+     */
+    public int getRawTradeCount(String symbol) {
+        SymbolHistory history = histories.get(symbol);
+        return history == null ? 0 : history.getRawTradeCount();
+    }
+
+    /**
+     * Get number of bytes of encoded bar data across all stocks.
+     *
+     * @return encoded size
+     */
+    public long getCompactedSize() {
+        long size = 0;
+        for (SymbolHistory history : histories.values()) {
+            size += history.getCompactedSize();
+        }
+        return size;
+    }
+}
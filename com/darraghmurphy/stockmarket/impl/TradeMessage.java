@@ -0,0 +1,269 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import com.darraghmurphy.stockmarket.api.TradeInterface.TradeStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Flyweight over a fixed layout binary trade message.
+ * <p/>
+ * The flyweight holds no trade data itself, it reads and writes fields in place at known offsets of the wrapped
+ * buffer, in the buffer's byte order. One instance can be rewrapped over any number of messages, and the static
+ * accessors allow a message to be read without any instance at all.
+ * <pre>
+ * Offset  Length  Field
+ *  0      8       stock symbol, ASCII, padded with spaces or zero bytes
+ *  8      8       timestamp, milliseconds since the epoch
+ * 16      8       price, fixed point in 1/{@link #PRICE_SCALE}
+ * 24      4       number of shares
+ * 28      1       buy or sell indicator, 'B' or 'S'
+ * 29      3       padding
+ * </pre>
+ */
+public final class TradeMessage {
+
+    /**
+     * Offset of the stock symbol.
+     */
+    public static final int SYMBOL_OFFSET = 0;
+
+    /**
+     * Length of the stock symbol field.
+     */
+    public static final int SYMBOL_LENGTH = 8;
+
+    /**
+     * Offset of the timestamp.
+     */
+    public static final int TIMESTAMP_OFFSET = 8;
+
+    /**
+     * Offset of the price.
+     */
+    public static final int PRICE_OFFSET = 16;
+
+    /**
+     * Offset of the number of shares.
+     */
+    public static final int NUMBER_OF_SHARES_OFFSET = 24;
+
+    /**
+     * Offset of the buy or sell indicator.
+     */
+    public static final int TRADE_STATUS_OFFSET = 28;
+
+    /**
+     * Length of a message in bytes.
+     */
+    public static final int LENGTH = 32;
+
+    /**
+     * Fixed point scale of the price field.
+     */
+    public static final long PRICE_SCALE = 10000;
+
+    /**
+     * Buy indicator.
+     */
+    private static final byte BUY = 'B';
+
+    /**
+     * Sell indicator.
+     */
+    private static final byte SELL = 'S';
+
+    /**
+     * Symbol character set.
+     */
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * Wrapped buffer.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Offset of the message within the buffer.
+     */
+    private int offset;
+
+    /**
+     * Wrap a message.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return this flyweight
+     */
+    public TradeMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     *
+     */
+    public int getSymbolLength() {
+        return symbolLength(buffer, offset);
+    }
+
+    /**
+     *
+     */
+    public long getTimestamp() {
+        return timestamp(buffer, offset);
+    }
+
+    /**
+     *
+     */
+    public double getPrice() {
+        return price(buffer, offset);
+    }
+
+    /**
+     *
+     */
+    public int getNumberOfShares() {
+        return numberOfShares(buffer, offset);
+    }
+
+    /**
+     *
+     */
+    public TradeStatus getTradeStatus() {
+        return tradeStatus(buffer, offset);
+    }
+
+    /**
+     * Write the stock symbol.
+     *
+     * @param symbol ASCII stock symbol of at most {@link #SYMBOL_LENGTH} characters
+     * @return this flyweight
+     */
+    public TradeMessage setSymbol(String symbol) {
+
+        byte[] bytes = symbol.getBytes(ASCII);
+        if (bytes.length > SYMBOL_LENGTH) throw new IllegalArgumentException(String.format("Symbol too long %s", symbol));
+
+        for (int i = 0; i < SYMBOL_LENGTH; i++) {
+            buffer.put(offset + SYMBOL_OFFSET + i, i < bytes.length ? bytes[i] : (byte) ' ');
+        }
+        return this;
+    }
+
+    /**
+     *
+     */
+    public TradeMessage setTimestamp(long timestamp) {
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        return this;
+    }
+
+    /**
+     *
+     */
+    public TradeMessage setPrice(double price) {
+        buffer.putLong(offset + PRICE_OFFSET, Math.round(price * PRICE_SCALE));
+        return this;
+    }
+
+    /**
+     *
+     */
+    public TradeMessage setNumberOfShares(int numberOfShares) {
+        buffer.putInt(offset + NUMBER_OF_SHARES_OFFSET, numberOfShares);
+        return this;
+    }
+
+    /**
+     *
+     */
+    public TradeMessage setTradeStatus(TradeStatus tradeStatus) {
+        buffer.put(offset + TRADE_STATUS_OFFSET, tradeStatus == TradeStatus.BUY ? BUY : SELL);
+        return this;
+    }
+
+    /**
+     * Length of the symbol of a message, excluding padding.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return symbol length
+     */
+    public static int symbolLength(ByteBuffer buffer, int offset) {
+
+        int length = 0;
+        while (length < SYMBOL_LENGTH) {
+            byte b = buffer.get(offset + SYMBOL_OFFSET + length);
+            if (b == ' ' || b == 0) break;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Symbol of a message as a String, for error reporting.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return stock symbol
+     */
+    public static String symbol(ByteBuffer buffer, int offset) {
+
+        byte[] bytes = new byte[symbolLength(buffer, offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + SYMBOL_OFFSET + i);
+        }
+        return new String(bytes, ASCII);
+    }
+
+    /**
+     * Timestamp of a message.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return milliseconds since the epoch
+     */
+    public static long timestamp(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Price of a message.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return traded price
+     */
+    public static double price(ByteBuffer buffer, int offset) {
+        return (double) buffer.getLong(offset + PRICE_OFFSET) / (double) PRICE_SCALE;
+    }
+
+    /**
+     * Number of shares of a message.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return number of shares
+     */
+    public static int numberOfShares(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + NUMBER_OF_SHARES_OFFSET);
+    }
+
+    /**
+     * Buy or sell indicator of a message.
+     *
+     * @param buffer buffer holding the message
+     * @param offset offset of the message within the buffer
+     * @return trade status
+     */
+    public static TradeStatus tradeStatus(ByteBuffer buffer, int offset) {
+
+        byte status = buffer.get(offset + TRADE_STATUS_OFFSET);
+        if (status == BUY) return TradeStatus.BUY;
+        if (status == SELL) return TradeStatus.SELL;
+        throw new IllegalArgumentException(String.format("Invalid trade status %d", status));
+    }
+}
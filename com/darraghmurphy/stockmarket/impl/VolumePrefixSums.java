@@ -0,0 +1,133 @@
+package com.darraghmurphy.stockmarket.impl;
+
+import java.util.Arrays;
+
+/**
+ * Prefix sums of traded notional and volume of a single stock, ordered by trade timestamp.
+ * <p/>
+ * Entry i holds the totals of all trades before the i-th trade, so the volume weighted stock price of any time range
+ * is two binary searches and a subtraction. Notional is summed from the traded prices as recorded, so a range agrees
+ * with the live volume weighted stock price, and is held compensated as a sum and its rounding error so that the
+ * subtraction of two large totals keeps the precision of the range.
+ * <p/>
+ * Not thread safe, the owning {@link SymbolHistory} guards access.
+ */
+class VolumePrefixSums {
+
+    /**
+     * Initial capacity.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Trade timestamps in milliseconds, sorted ascending.
+     */
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+
+    /**
+     * Notional of all trades before each position, one longer than the number of trades.
+     */
+    private double[] cumulativeNotional = new double[INITIAL_CAPACITY + 1];
+
+    /**
+     * Rounding error of each cumulative notional, the exact total is the sum and its error.
+     */
+    private double[] cumulativeNotionalError = new double[INITIAL_CAPACITY + 1];
+
+    /**
+     * Volume of all trades before each position, one longer than the number of trades.
+     */
+    private long[] cumulativeVolume = new long[INITIAL_CAPACITY + 1];
+
+    /**
+     * Number of trades.
+     */
+    private int size;
+
+    /**
+     * Add a trade.
+     *
+     * @param timestamp      trade timestamp in milliseconds
+     * @param price          traded price
+     * @param numberOfShares number of shares
+     */
+    void add(long timestamp, double price, int numberOfShares) {
+
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            cumulativeNotional = Arrays.copyOf(cumulativeNotional, size * 2 + 1);
+            cumulativeNotionalError = Arrays.copyOf(cumulativeNotionalError, size * 2 + 1);
+            cumulativeVolume = Arrays.copyOf(cumulativeVolume, size * 2 + 1);
+        }
+
+        double notional = price * numberOfShares;
+
+        /** Trades normally arrive in order, a late trade shifts and adjusts the later entries */
+        int position = size;
+        while (position > 0 && timestamps[position - 1] > timestamp) {
+            timestamps[position] = timestamps[position - 1];
+            accumulate(position + 1, position, notional);
+            cumulativeVolume[position + 1] = cumulativeVolume[position] + numberOfShares;
+            position--;
+        }
+
+        timestamps[position] = timestamp;
+        accumulate(position + 1, position, notional);
+        cumulativeVolume[position + 1] = cumulativeVolume[position] + numberOfShares;
+        size++;
+    }
+
+    /**
+     * Set a cumulative notional to a previous one plus an amount, carrying the rounding error of the addition.
+     */
+    private void accumulate(int target, int source, double amount) {
+
+        double total = cumulativeNotional[source];
+        double sum = total + amount;
+        double amountPart = sum - total;
+        double error = (total - (sum - amountPart)) + (amount - amountPart);
+
+        cumulativeNotional[target] = sum;
+        cumulativeNotionalError[target] = cumulativeNotionalError[source] + error;
+    }
+
+    /**
+     * Calculate the volume weighted stock price of the trades within a time range.
+     *
+     * @param from start of range in milliseconds, inclusive
+     * @param to   end of range in milliseconds, exclusive
+     * @return volume weighted stock price, or 0 if no trades fall within the range
+     */
+    double volumeWeightedStockPrice(long from, long to) {
+
+        if (to <= from) return 0;
+
+        int start = lowerBound(from);
+        int end = lowerBound(to);
+
+        long volume = cumulativeVolume[end] - cumulativeVolume[start];
+        if (volume == 0) return 0;
+
+        double notional = (cumulativeNotional[end] - cumulativeNotional[start])
+                + (cumulativeNotionalError[end] - cumulativeNotionalError[start]);
+        return notional / (double) volume;
+    }
+
+    /**
+     * Position of the first trade at or after a timestamp.
+     */
+    private int lowerBound(long timestamp) {
+
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,107 @@
+package com.darraghmurphy.stockmarket.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Records the duration of each garbage collection from the HotSpot collection notifications.
+ * <p/>
+ * The collector MXBean totals add up every collection, and for concurrent collectors that includes the time spent
+ * collecting alongside the application. Notifications report each collection separately, so stop the world pauses
+ * are kept apart from concurrent cycles and their maximum and percentiles can be reported.
+ * <p/>
+ * A collection is treated as a concurrent cycle when its collector or action names it as concurrent or as a cycle,
+ * e.g. the "ZGC Cycles", "Shenandoah Cycles" and "G1 Concurrent GC" collectors. Notifications are delivered
+ * asynchronously, a collection ending just before {@link #stop()} may be missed.
+ */
+public class GcPauseRecorder implements NotificationListener {
+
+    /**
+     * Maximum number of pauses recorded.
+     */
+    private static final int CAPACITY = 100000;
+
+    /**
+     * Stop the world pause durations.
+     */
+    private final LatencyRecorder pauses = new LatencyRecorder(CAPACITY);
+
+    /**
+     * Concurrent cycle durations.
+     */
+    private final LatencyRecorder concurrentCycles = new LatencyRecorder(CAPACITY);
+
+    /**
+     * Start receiving collection notifications.
+     */
+    public void start() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+    /**
+     * Stop receiving collection notifications.
+     */
+    public void stop() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    /** Not every collector emits notifications */
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a collection.
+     */
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long nanos = info.getGcInfo().getDuration() * 1000000;
+        String kind = (info.getGcName() + " " + info.getGcAction()).toLowerCase(Locale.ROOT);
+
+        synchronized (this) {
+            if (kind.contains("concurrent") || kind.contains("cycle")) {
+                concurrentCycles.record(nanos);
+            } else {
+                pauses.record(nanos);
+            }
+        }
+    }
+
+    /**
+     * Get the recorded collections as a report.
+     *
+     * @return report
+     */
+    public synchronized LoadTestReport report() {
+
+        LatencyRecorder sortedPauses = LatencyRecorder.merge(pauses);
+        LatencyRecorder sortedCycles = LatencyRecorder.merge(concurrentCycles);
+
+        return new LoadTestReport()
+                .add("pauses", sortedPauses.getCount())
+                .add("pauseMillis", sortedPauses.getTotal() / 1e6)
+                .add("p99PauseMillis", sortedPauses.percentile(99) / 1e6)
+                .add("maxPauseMillis", sortedPauses.percentile(100) / 1e6)
+                .add("concurrentCycles", sortedCycles.getCount())
+                .add("concurrentCycleMillis", sortedCycles.getTotal() / 1e6);
+    }
+}
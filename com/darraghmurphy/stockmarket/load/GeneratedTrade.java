@@ -0,0 +1,69 @@
+package com.darraghmurphy.stockmarket.load;
+
+/**
+ * Trade produced by a {@link TradeStreamGenerator}.
+ * <p/>
+ * Instances are mutable and reused by the generator's caller, so generating a trade does not allocate.
+ */
+public class GeneratedTrade {
+
+    /**
+     * Stock symbol.
+     */
+    String symbol;
+
+    /**
+     * True for a BUY trade, false for a SELL trade.
+     */
+    boolean buy;
+
+    /**
+     * Number of shares.
+     */
+    int numberOfShares;
+
+    /**
+     * Traded price.
+     */
+    double price;
+
+    /**
+     * Time of the trade in nanoseconds from the start of the stream.
+     */
+    long offsetNanos;
+
+    /**
+     *
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     *
+     */
+    public boolean isBuy() {
+        return buy;
+    }
+
+    /**
+     *
+     */
+    public int getNumberOfShares() {
+        return numberOfShares;
+    }
+
+    /**
+     *
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     *
+     */
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+}
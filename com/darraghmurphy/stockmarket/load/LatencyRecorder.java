@@ -0,0 +1,95 @@
+package com.darraghmurphy.stockmarket.load;
+
+import java.util.Arrays;
+
+/**
+ * Records latency samples into a preallocated array, so recording does not allocate or disturb the measurement.
+ * <p/>
+ * Not thread safe, each producer records into its own instance and the instances are merged afterwards.
+ */
+public class LatencyRecorder {
+
+    /**
+     * Latency samples in nanoseconds.
+     */
+    private long[] samples;
+
+    /**
+     * Number of samples recorded.
+     */
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of samples
+     */
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Record a sample, samples beyond the capacity are ignored.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (count < samples.length) samples[count++] = nanos;
+    }
+
+    /**
+     * Get number of samples recorded.
+     *
+     * @return sample count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the samples recorded.
+     *
+     * @return total latency in nanoseconds
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += samples[i];
+        }
+        return total;
+    }
+
+    /**
+     * Merge the samples of several recorders, sorted ascending.
+     *
+     * @param recorders recorders to merge
+     * @return merged recorder
+     */
+    public static LatencyRecorder merge(LatencyRecorder... recorders) {
+
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+
+        LatencyRecorder merged = new LatencyRecorder(total);
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged.samples, merged.count, recorder.count);
+            merged.count += recorder.count;
+        }
+        Arrays.sort(merged.samples, 0, merged.count);
+        return merged;
+    }
+
+    /**
+     * Get a percentile of a merged, sorted recorder.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return latency in nanoseconds, or 0 if no samples were recorded
+     */
+    public long percentile(double percentile) {
+        if (count == 0) return 0;
+        int index = (int) Math.ceil(percentile / 100d * count) - 1;
+        return samples[Math.max(0, Math.min(index, count - 1))];
+    }
+}
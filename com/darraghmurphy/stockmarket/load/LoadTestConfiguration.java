@@ -0,0 +1,179 @@
+package com.darraghmurphy.stockmarket.load;
+
+import com.darraghmurphy.stockmarket.TradeIngestQueue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test configuration, parsed from key=value command line arguments.
+ * <p/>
+ * <pre>
+ * seed=42             random seed
+ * symbols=5000        number of stock symbols
+ * zipf=1.1            Zipf exponent of symbol popularity
+ * rate=200000         mean calm state trade rate per second, across all producers
+ * burstiness=10       rate multiplier during bursts
+ * producers=4         number of producer threads
+ * trades=250000       trades per producer
+ * warmup=50000        trades per producer excluded from the latency statistics
+ * queryEvery=10       trades between queries on each producer, 0 for no queries
+ * paced=false         true to send trades at their generated times, false to send as fast as possible
+ * policy=none         none to record directly, or BLOCK, DROP_OLDEST or CONFLATE to submit through a TradeIngestQueue
+ * queueCapacity=4096  capacity of the ingest queue
+ * label=dev           label written to the report, e.g. the version under test
+ * output=-            report file, - for standard output
+ * </pre>
+ */
+public class LoadTestConfiguration {
+
+    /**
+     * Configuration values by key, in documentation order.
+     */
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param args key=value arguments
+     */
+    public LoadTestConfiguration(String... args) {
+
+        values.put("seed", "42");
+        values.put("symbols", "5000");
+        values.put("zipf", "1.1");
+        values.put("rate", "200000");
+        values.put("burstiness", "10");
+        values.put("producers", "4");
+        values.put("trades", "250000");
+        values.put("warmup", "50000");
+        values.put("queryEvery", "10");
+        values.put("paced", "false");
+        values.put("policy", "none");
+        values.put("queueCapacity", "4096");
+        values.put("label", "dev");
+        values.put("output", "-");
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException(String.format("Invalid argument %s", arg));
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        if (getWarmup() >= getTrades()) {
+            throw new IllegalArgumentException(String.format("Warmup %d must be less than trades %d", getWarmup(), getTrades()));
+        }
+    }
+
+    /**
+     *
+     */
+    public long getSeed() {
+        return Long.parseLong(values.get("seed"));
+    }
+
+    /**
+     *
+     */
+    public int getSymbols() {
+        return Integer.parseInt(values.get("symbols"));
+    }
+
+    /**
+     *
+     */
+    public double getZipf() {
+        return Double.parseDouble(values.get("zipf"));
+    }
+
+    /**
+     *
+     */
+    public double getRate() {
+        return Double.parseDouble(values.get("rate"));
+    }
+
+    /**
+     *
+     */
+    public double getBurstiness() {
+        return Double.parseDouble(values.get("burstiness"));
+    }
+
+    /**
+     *
+     */
+    public int getProducers() {
+        return Integer.parseInt(values.get("producers"));
+    }
+
+    /**
+     *
+     */
+    public int getTrades() {
+        return Integer.parseInt(values.get("trades"));
+    }
+
+    /**
+     *
+     */
+    public int getWarmup() {
+        return Integer.parseInt(values.get("warmup"));
+    }
+
+    /**
+     *
+     */
+    public int getQueryEvery() {
+        return Integer.parseInt(values.get("queryEvery"));
+    }
+
+    /**
+     *
+     */
+    public boolean isPaced() {
+        return Boolean.parseBoolean(values.get("paced"));
+    }
+
+    /**
+     * Get the ingest queue overload policy.
+     *
+     * @return overload policy, or null to record directly into the market
+     */
+    public TradeIngestQueue.OverloadPolicy getPolicy() {
+        String policy = values.get("policy");
+        return "none".equalsIgnoreCase(policy) ? null : TradeIngestQueue.OverloadPolicy.valueOf(policy.toUpperCase());
+    }
+
+    /**
+     *
+     */
+    public int getQueueCapacity() {
+        return Integer.parseInt(values.get("queueCapacity"));
+    }
+
+    /**
+     *
+     */
+    public String getLabel() {
+        return values.get("label");
+    }
+
+    /**
+     *
+     */
+    public String getOutput() {
+        return values.get("output");
+    }
+
+    /**
+     * Get all configuration values.
+     *
+     * @return values by key
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+}
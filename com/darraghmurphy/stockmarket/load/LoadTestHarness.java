@@ -0,0 +1,260 @@
+package com.darraghmurphy.stockmarket.load;
+
+import com.darraghmurphy.stockmarket.SuperSimpleStockMarket;
+import com.darraghmurphy.stockmarket.TradeIngestQueue;
+import com.darraghmurphy.stockmarket.api.StockMarketInterface;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End to end load test of the stock market.
+ * <p/>
+ * Several producer threads each drive a deterministic {@link TradeStreamGenerator} through
+ * {@link StockMarketInterface}, mixing in queries. The harness reports sustained throughput, trade and query latency
+ * percentiles, heap growth and garbage collection pauses as JSON, see {@link LoadTestConfiguration} for the
+ * arguments.
+ * <p/>
+ * With an overload policy configured, trades are submitted through a {@link TradeIngestQueue} and the trade latency
+ * is the submission latency seen by the producer.
+ * <p/>
+ * When paced, latency is measured from the time a trade was scheduled to be sent rather than when it was sent, so
+ * a stall is charged to every trade queued behind it.
+ */
+public class LoadTestHarness {
+
+    /**
+     * Business date of the simulated session, the trade streams start 15 minutes before it.
+     */
+    private static final GregorianCalendar BUSINESS_DATE = new GregorianCalendar(2015, 0, 1, 13, 0, 0);
+
+    /**
+     * Configuration.
+     */
+    private final LoadTestConfiguration configuration;
+
+    /**
+     * Constructor.
+     *
+     * @param configuration configuration
+     */
+    public LoadTestHarness(LoadTestConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Run the load test.
+     *
+     * @return report
+     * @throws Exception Error occurred.
+     */
+    public LoadTestReport run() throws Exception {
+
+        final StockMarketInterface market = new SuperSimpleStockMarket(BUSINESS_DATE);
+        market.loadStocks(writeStocks(configuration.getSymbols()));
+
+        final TradeIngestQueue queue = configuration.getPolicy() == null ? null
+                : new TradeIngestQueue(market, configuration.getQueueCapacity(), configuration.getPolicy());
+        if (queue != null) queue.start();
+
+        final int producers = configuration.getProducers();
+        final LatencyRecorder[] tradeLatencies = new LatencyRecorder[producers];
+        final LatencyRecorder[] queryLatencies = new LatencyRecorder[producers];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(producers);
+        final Throwable[] failure = new Throwable[1];
+
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            tradeLatencies[i] = new LatencyRecorder(configuration.getTrades());
+            queryLatencies[i] = new LatencyRecorder(configuration.getTrades());
+
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        produce(market, queue, producer, tradeLatencies[producer], queryLatencies[producer]);
+                    } catch (Throwable t) {
+                        synchronized (failure) {
+                            failure[0] = t;
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }, "producer-" + i);
+            threads[i].start();
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        GcPauseRecorder gc = new GcPauseRecorder();
+        gc.start();
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        finished.await();
+        if (queue != null) queue.close();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        gc.stop();
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        if (failure[0] != null) throw new IllegalStateException("Producer failed", failure[0]);
+
+        long trades = (long) producers * configuration.getTrades();
+        LatencyRecorder queries = LatencyRecorder.merge(queryLatencies);
+
+        LoadTestReport report = new LoadTestReport()
+                .add("label", configuration.getLabel())
+                .add("javaVersion", System.getProperty("java.version"))
+                .add("configuration", configuration.getValues())
+                .add("trades", trades)
+                .add("queries", queries.getCount())
+                .add("elapsedMillis", elapsedNanos / 1000000)
+                .add("throughputPerSecond", trades * 1e9 / elapsedNanos)
+                .add("tradeLatencyNanos", LatencyRecorder.merge(tradeLatencies))
+                .add("queryLatencyNanos", queries)
+                .add("heap", new LoadTestReport()
+                        .add("usedBeforeBytes", heapBefore)
+                        .add("usedAfterBytes", heapAfter)
+                        .add("growthBytes", heapAfter - heapBefore))
+                .add("gc", gc.report());
+
+        if (queue != null) {
+            report.add("ingestQueue", new LoadTestReport()
+                    .add("accepted", queue.getAcceptedCount())
+                    .add("dropped", queue.getDroppedCount())
+                    .add("conflated", queue.getConflatedCount())
+                    .add("rejected", queue.getRejectedCount())
+                    .add("maxQueueDepth", queue.getMaxQueueDepth()));
+        }
+        return report;
+    }
+
+    /**
+     * Drive one producer's trade stream through the market.
+     */
+    private void produce(StockMarketInterface market, TradeIngestQueue queue, int producer, LatencyRecorder tradeLatency, LatencyRecorder queryLatency) {
+
+        TradeStreamGenerator generator = new TradeStreamGenerator(configuration.getSeed() + producer, configuration.getSymbols(),
+                configuration.getZipf(), configuration.getRate() / configuration.getProducers(), configuration.getBurstiness());
+        GeneratedTrade trade = new GeneratedTrade();
+
+        long streamStart = BUSINESS_DATE.getTimeInMillis() - 15 * 60 * 1000;
+        long startNanos = System.nanoTime();
+        int queryEvery = configuration.getQueryEvery();
+        boolean paced = configuration.isPaced();
+
+        for (int i = 0; i < configuration.getTrades(); i++) {
+
+            generator.next(trade);
+
+            long scheduled = startNanos + trade.getOffsetNanos();
+            if (paced) {
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            Calendar timestamp = new GregorianCalendar();
+            timestamp.setTimeInMillis(streamStart + trade.getOffsetNanos() / 1000000);
+
+            long begin = System.nanoTime();
+            if (queue != null) {
+                if (trade.isBuy()) {
+                    queue.submitBuyTrade(trade.getNumberOfShares(), trade.getSymbol(), trade.getPrice(), timestamp);
+                } else {
+                    queue.submitSellTrade(trade.getNumberOfShares(), trade.getSymbol(), trade.getPrice(), timestamp);
+                }
+            } else if (trade.isBuy()) {
+                market.recordBuyTrade(trade.getNumberOfShares(), trade.getSymbol(), trade.getPrice(), timestamp);
+            } else {
+                market.recordSellTrade(trade.getNumberOfShares(), trade.getSymbol(), trade.getPrice(), timestamp);
+            }
+            long end = System.nanoTime();
+
+            boolean measured = i >= configuration.getWarmup();
+            if (measured) tradeLatency.record(end - (paced ? scheduled : begin));
+
+            if (queryEvery > 0 && i % queryEvery == 0) {
+                begin = System.nanoTime();
+                query(market, trade, i / queryEvery);
+                if (measured) queryLatency.record(System.nanoTime() - begin);
+            }
+        }
+    }
+
+    /**
+     * Run one query of the mix, chosen round robin.
+     */
+    private static double query(StockMarketInterface market, GeneratedTrade trade, int sequence) {
+
+        switch (sequence % 6) {
+            case 0:
+                return market.volumeWeightedStockPrice(trade.getSymbol());
+            case 1:
+                return market.dividendYield(trade.getSymbol(), trade.getPrice());
+            case 2:
+                return market.priceEarningsRatio(trade.getSymbol(), trade.getPrice());
+            case 3:
+                return market.orderFlowImbalance(trade.getSymbol());
+            case 4:
+                return market.topByVolume(20).size();
+            default:
+                return market.geometricMean();
+        }
+    }
+
+    /**
+     * Write stock reference data for the generated symbols, every tenth stock is preferred.
+     */
+    private File writeStocks(int symbols) throws IOException {
+
+        File file = File.createTempFile("load-test-stocks", ".csv");
+        file.deleteOnExit();
+
+        try (Writer writer = new FileWriter(file)) {
+            for (int i = 0; i < symbols; i++) {
+                if (i % 10 == 9) {
+                    writer.write(String.format("%s,Preferred,0,%d%%,100%n", TradeStreamGenerator.symbol(i), 1 + i % 5));
+                } else {
+                    writer.write(String.format("%s,Common,%d,,100%n", TradeStreamGenerator.symbol(i), 1 + i % 20));
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Main class.
+     *
+     * @throws Exception Error occurred.
+     */
+    public static void main(String[] args) throws Exception {
+
+        LoadTestConfiguration configuration = new LoadTestConfiguration(args);
+        String report = new LoadTestHarness(configuration).run().toString();
+
+        if ("-".equals(configuration.getOutput())) {
+            System.out.println(report);
+        } else {
+            try (PrintStream out = new PrintStream(configuration.getOutput(), "UTF-8")) {
+                out.println(report);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.darraghmurphy.stockmarket.load;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Machine readable load test report, written as a single JSON object so results can be tracked across versions.
+ */
+public class LoadTestReport {
+
+    /**
+     * Report under construction.
+     */
+    private final StringBuilder json = new StringBuilder("{");
+
+    /**
+     * Add a string value.
+     *
+     * @param name  field name
+     * @param value field value
+     * @return this report
+     */
+    public LoadTestReport add(String name, String value) {
+        field(name).append('"').append(escape(value)).append('"');
+        return this;
+    }
+
+    /**
+     * Add a numeric value.
+     *
+     * @param name  field name
+     * @param value field value
+     * @return this report
+     */
+    public LoadTestReport add(String name, long value) {
+        field(name).append(value);
+        return this;
+    }
+
+    /**
+     * Add a numeric value, JSON has no NaN or infinity so those are written as null.
+     *
+     * @param name  field name
+     * @param value field value
+     * @return this report
+     */
+    public LoadTestReport add(String name, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            field(name).append("null");
+        } else {
+            field(name).append(String.format(Locale.ROOT, "%.3f", value));
+        }
+        return this;
+    }
+
+    /**
+     * Add a nested object of string values.
+     *
+     * @param name   field name
+     * @param values field values
+     * @return this report
+     */
+    public LoadTestReport add(String name, Map<String, String> values) {
+        LoadTestReport nested = new LoadTestReport();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            nested.add(entry.getKey(), entry.getValue());
+        }
+        return add(name, nested);
+    }
+
+    /**
+     * Add a nested object of latency percentiles.
+     *
+     * @param name     field name
+     * @param recorder merged latency recorder
+     * @return this report
+     */
+    public LoadTestReport add(String name, LatencyRecorder recorder) {
+        return add(name, new LoadTestReport()
+                .add("count", recorder.getCount())
+                .add("p50", recorder.percentile(50))
+                .add("p90", recorder.percentile(90))
+                .add("p99", recorder.percentile(99))
+                .add("p99.9", recorder.percentile(99.9))
+                .add("max", recorder.percentile(100)));
+    }
+
+    /**
+     * Add a nested object.
+     *
+     * @param name   field name
+     * @param nested nested report
+     * @return this report
+     */
+    public LoadTestReport add(String name, LoadTestReport nested) {
+        field(name).append(nested.toString());
+        return this;
+    }
+
+    /**
+     * Start a field.
+     */
+    private StringBuilder field(String name) {
+        if (json.length() > 1) json.append(',');
+        return json.append('"').append(escape(name)).append("\":");
+    }
+
+    /**
+     * Escape a JSON string.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Get the report as JSON.
+     */
+    @Override
+    public String toString() {
+        return json.toString() + "}";
+    }
+}
@@ -0,0 +1,155 @@
+package com.darraghmurphy.stockmarket.load;
+
+import com.darraghmurphy.stockmarket.SuperSimpleStockMarket;
+import com.darraghmurphy.stockmarket.api.StockInterface;
+import com.darraghmurphy.stockmarket.api.TradeInterface.TradeStatus;
+import com.darraghmurphy.stockmarket.impl.CommonStock;
+import com.darraghmurphy.stockmarket.impl.StockRegistry;
+import com.darraghmurphy.stockmarket.impl.TradeMessage;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Benchmark of binary trade message decoding and ingest.
+ * <p/>
+ * Messages are pre-encoded into a direct buffer, then decoded in place with the {@link TradeMessage} flyweight, and
+ * separately recorded into the market with {@link SuperSimpleStockMarket#recordTradeMessage}. Each phase is run
+ * once to warm up and once measured, reporting nanoseconds and bytes allocated per message as JSON.
+ * <p/>
+ * Allocation is measured with the HotSpot per thread allocation counter. Ingest allocates no objects per trade, but
+ * the intraday history retains 52 bytes per trade: 20 in the raw tier until the trade is compacted and 32 in the
+ * session prefix sums. The figure reported for ingest is that retained data plus the copies made as its arrays
+ * double, around 90 bytes per message when every trade is still held raw, and includes the compaction of the warm
+ * up trades into bars.
+ * <pre>
+ * TradeMessageBenchmark [messages] [symbols]
+ * </pre>
+ */
+public class TradeMessageBenchmark {
+
+    /**
+     * Business date of the simulated session, the trade stream starts 15 minutes before it.
+     */
+    private static final GregorianCalendar BUSINESS_DATE = new GregorianCalendar(2015, 0, 1, 13, 0, 0);
+
+    /**
+     * Prevents the decoded values being optimised away.
+     */
+    private static long sink;
+
+    /**
+     * Main class.
+     *
+     * @throws Exception Error occurred.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int symbols = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ByteBuffer warmup = encode(messages, symbols, 1, 0);
+        ByteBuffer measured = encode(messages, symbols, 2, BUSINESS_DATE.getTimeInMillis() - 15 * 60 * 1000);
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(BUSINESS_DATE);
+        List<StockInterface> stocks = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            stocks.add(new CommonStock(TradeStreamGenerator.symbol(i), 1d + i % 20, 100d));
+        }
+        StockRegistry registry = new StockRegistry(stocks);
+        market.recordStocks(stocks);
+
+        decode(warmup, messages, registry);
+        long[] decode = decode(measured, messages, registry);
+
+        ingest(warmup, messages, market);
+        long[] ingest = ingest(measured, messages, market);
+
+        System.out.println(new LoadTestReport()
+                .add("messages", messages)
+                .add("symbols", symbols)
+                .add("decode", new LoadTestReport()
+                        .add("nanosPerMessage", (double) decode[0] / messages)
+                        .add("bytesAllocatedPerMessage", (double) decode[1] / messages))
+                .add("decodeAndIngest", new LoadTestReport()
+                        .add("nanosPerMessage", (double) ingest[0] / messages)
+                        .add("bytesAllocatedPerMessage", (double) ingest[1] / messages)));
+    }
+
+    /**
+     * Encode a stream of messages.
+     */
+    private static ByteBuffer encode(int messages, int symbols, long seed, long start) {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(messages * TradeMessage.LENGTH);
+        TradeStreamGenerator generator = new TradeStreamGenerator(seed, symbols, 1.1, 100000, 10);
+        GeneratedTrade trade = new GeneratedTrade();
+        TradeMessage message = new TradeMessage();
+
+        for (int i = 0; i < messages; i++) {
+            generator.next(trade);
+            message.wrap(buffer, i * TradeMessage.LENGTH)
+                    .setSymbol(trade.getSymbol())
+                    .setTimestamp(start + trade.getOffsetNanos() / 1000000)
+                    .setPrice(trade.getPrice())
+                    .setNumberOfShares(trade.getNumberOfShares())
+                    .setTradeStatus(trade.isBuy() ? TradeStatus.BUY : TradeStatus.SELL);
+        }
+        return buffer;
+    }
+
+    /**
+     * Decode every message and resolve its stock.
+     *
+     * @return elapsed nanoseconds and bytes allocated
+     */
+    private static long[] decode(ByteBuffer buffer, int messages, StockRegistry registry) {
+
+        TradeMessage message = new TradeMessage();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        long checksum = 0;
+        for (int i = 0; i < messages; i++) {
+            int offset = i * TradeMessage.LENGTH;
+            message.wrap(buffer, offset);
+            StockInterface stock = registry.get(buffer, offset + TradeMessage.SYMBOL_OFFSET, message.getSymbolLength());
+            checksum += stock.hashCode() + message.getTimestamp() + (long) message.getPrice()
+                    + message.getNumberOfShares() + message.getTradeStatus().ordinal();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        sink += checksum;
+        return new long[]{elapsed, allocated};
+    }
+
+    /**
+     * Record every message into the market.
+     *
+     * @return elapsed nanoseconds and bytes allocated
+     */
+    private static long[] ingest(ByteBuffer buffer, int messages, SuperSimpleStockMarket market) {
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < messages; i++) {
+            market.recordTradeMessage(buffer, i * TradeMessage.LENGTH);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new long[]{elapsed, allocated};
+    }
+
+    /**
+     * Bytes allocated by the current thread.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
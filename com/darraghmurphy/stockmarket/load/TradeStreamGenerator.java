@@ -0,0 +1,153 @@
+package com.darraghmurphy.stockmarket.load;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Deterministic generator of realistic trade streams.
+ * <p/>
+ * For a given seed and configuration the generator always produces the same stream:
+ * <ul>
+ * <li>Symbol popularity follows a Zipf distribution, the k-th most popular symbol is traded in proportion to
+ * 1 / k^exponent.</li>
+ * <li>Arrival times follow a Poisson process whose rate switches between a calm state and a burst state, in which
+ * the rate is multiplied by the burstiness factor. Bursts start with probability {@link #BURST_START} and end with
+ * probability {@link #BURST_END} per trade.</li>
+ * <li>Each symbol's price follows a random walk in cents, quantities are exponentially distributed.</li>
+ * </ul>
+ */
+public class TradeStreamGenerator {
+
+    /**
+     * Probability per trade of a calm stream entering a burst.
+     */
+    static final double BURST_START = 0.01;
+
+    /**
+     * Probability per trade of a burst ending.
+     */
+    static final double BURST_END = 0.1;
+
+    /**
+     * Mean number of shares per trade.
+     */
+    private static final double MEAN_QUANTITY = 100;
+
+    /**
+     * Standard deviation of the relative price change per trade.
+     */
+    private static final double VOLATILITY = 0.001;
+
+    /**
+     * Random number source.
+     */
+    private final Random random;
+
+    /**
+     * Stock symbols, most popular first.
+     */
+    private final String[] symbols;
+
+    /**
+     * Cumulative Zipf probabilities, used to pick a symbol by binary search.
+     */
+    private final double[] cumulative;
+
+    /**
+     * Last price of each symbol.
+     */
+    private final double[] prices;
+
+    /**
+     * Mean interval between trades in the calm state, in nanoseconds.
+     */
+    private final double meanInterval;
+
+    /**
+     * Rate multiplier in the burst state.
+     */
+    private final double burstiness;
+
+    /**
+     * True while in the burst state.
+     */
+    private boolean inBurst;
+
+    /**
+     * Time of the last generated trade in nanoseconds from the start of the stream.
+     */
+    private long offsetNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param seed            random seed
+     * @param symbolCount     number of symbols
+     * @param zipfExponent    Zipf exponent, 0 for uniform popularity
+     * @param tradesPerSecond mean calm state trade rate
+     * @param burstiness      rate multiplier during bursts, 1 for no bursts
+     */
+    public TradeStreamGenerator(long seed, int symbolCount, double zipfExponent, double tradesPerSecond, double burstiness) {
+
+        if (symbolCount <= 0) throw new IllegalArgumentException(String.format("Invalid symbol count %d", symbolCount));
+        if (tradesPerSecond <= 0) throw new IllegalArgumentException(String.format("Invalid rate %f", tradesPerSecond));
+        if (burstiness < 1) throw new IllegalArgumentException(String.format("Invalid burstiness %f", burstiness));
+
+        this.random = new Random(seed);
+        this.symbols = new String[symbolCount];
+        this.cumulative = new double[symbolCount];
+        this.prices = new double[symbolCount];
+        this.meanInterval = 1e9 / tradesPerSecond;
+        this.burstiness = burstiness;
+
+        double total = 0;
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = symbol(i);
+            total += 1d / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < symbolCount; i++) {
+            cumulative[i] /= total;
+            prices[i] = Math.round(1000 + random.nextDouble() * 9000) / 100d;
+        }
+    }
+
+    /**
+     * Symbol of the i-th most popular stock.
+     *
+     * @param i popularity rank, from zero
+     * @return stock symbol
+     */
+    public static String symbol(int i) {
+        return String.format("S%05d", i);
+    }
+
+    /**
+     * Generate the next trade.
+     *
+     * @param trade trade to populate
+     */
+    public void next(GeneratedTrade trade) {
+
+        if (inBurst) {
+            if (random.nextDouble() < BURST_END) inBurst = false;
+        } else {
+            if (random.nextDouble() < BURST_START) inBurst = true;
+        }
+
+        double interval = -Math.log(1 - random.nextDouble()) * meanInterval;
+        offsetNanos += (long) (inBurst ? interval / burstiness : interval);
+
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) index = Math.min(-index - 1, symbols.length - 1);
+
+        double price = Math.round(prices[index] * (1 + random.nextGaussian() * VOLATILITY) * 100) / 100d;
+        prices[index] = Math.max(price, 0.01);
+
+        trade.symbol = symbols[index];
+        trade.buy = random.nextBoolean();
+        trade.numberOfShares = 1 + (int) (-Math.log(1 - random.nextDouble()) * MEAN_QUANTITY);
+        trade.price = prices[index];
+        trade.offsetNanos = offsetNanos;
+    }
+}
@@ -1,14 +1,35 @@
 package com.darraghmurphy.stockmarket.test;
 
 import com.darraghmurphy.stockmarket.SuperSimpleStockMarket;
+import com.darraghmurphy.stockmarket.TradeIngestQueue;
+import com.darraghmurphy.stockmarket.TradeIngestQueue.OverloadPolicy;
+import com.darraghmurphy.stockmarket.api.MarketSnapshotInterface;
+import com.darraghmurphy.stockmarket.api.PriceBarInterface;
+import com.darraghmurphy.stockmarket.api.StockIndexInterface;
+import com.darraghmurphy.stockmarket.api.StockIndexListenerInterface;
+import com.darraghmurphy.stockmarket.api.StockInterface;
 import com.darraghmurphy.stockmarket.api.TradeInterface;
 import com.darraghmurphy.stockmarket.api.TradeInterface.TradeStatus;
+import com.darraghmurphy.stockmarket.impl.CapWeightedIndex;
 import com.darraghmurphy.stockmarket.impl.CommonStock;
+import com.darraghmurphy.stockmarket.impl.EqualWeightedGeometricIndex;
 import com.darraghmurphy.stockmarket.impl.PreferredStock;
+import com.darraghmurphy.stockmarket.impl.PriceWeightedIndex;
+import com.darraghmurphy.stockmarket.impl.StockRegistry;
+import com.darraghmurphy.stockmarket.impl.SymbolRanking;
 import com.darraghmurphy.stockmarket.impl.Trade;
-
+import com.darraghmurphy.stockmarket.impl.TradeHistory;
+import com.darraghmurphy.stockmarket.impl.TradeMessage;
+import com.darraghmurphy.stockmarket.load.GeneratedTrade;
+import com.darraghmurphy.stockmarket.load.TradeStreamGenerator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple test class.
@@ -108,14 +129,23 @@ public class TestSuperSimpleStockMarket {
 
         /** Check geometric mean after trades have been added */
         addTradeData(DEFAULT_BUSINESS_DATA, market);
-        assertEquals(market.geometricMean(), Math.pow(10d * 20d * 30d * 40d * 50d, 1.0 / 5.0));
+        assertEquals(market.geometricMean(), Math.pow(10d * 20d * 30d * 40d * 50d, 1.0 / 5.0), 1e-12);
 
         /**
          * Check geometric mean after more trades have been added.
          * As the number of stock types and prices is constant the result should be the same.
          * */
         addTradeData(DEFAULT_BUSINESS_DATA, market);
-        assertEquals(market.geometricMean(), Math.pow(10d * 20d * 30d * 40d * 50d, 1.0 / 5.0));
+        assertEquals(market.geometricMean(), Math.pow(10d * 20d * 30d * 40d * 50d, 1.0 / 5.0), 1e-12);
+
+        /** A running product of these prices would overflow, the geometric mean must not */
+        for (int i = 0; i < 1000; i++) {
+            market.recordBuyTrade(1, "TEA", 1e4, DEFAULT_BUSINESS_DATA);
+        }
+        for (int i = 0; i < 1000; i++) {
+            market.recordBuyTrade(1, "POP", 1e-4, DEFAULT_BUSINESS_DATA);
+        }
+        assertEquals(market.geometricMean(), Math.pow(10d * 20d * 30d * 40d * 50d, 1.0 / 1005), 1e-9);
     }
 
     /**
@@ -142,6 +172,651 @@ public class TestSuperSimpleStockMarket {
     }
 
 
+    /**
+     * TestSuperSimpleStockMarket top N rankings are maintained as trades are recorded.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testRankings() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+
+        addStockDate(market);
+        addTradeData(DEFAULT_BUSINESS_DATA, market);
+
+        /** Volumes are TEA 10, POP 20, ALE 30, GIN 40, JOE 50 */
+        assertEquals(market.topByVolume(3).toString(), "[JOE, GIN, ALE]");
+        assertEquals(market.topByVolume(10).size(), 5);
+        assertEquals(market.topByVolume(0).size(), 0);
+
+        /** Yields at last price are TEA 0, POP 0.8, ALE 0.7667, GIN 0.004, JOE 0.26 */
+        assertEquals(market.topByDividendYield(2).toString(), "[POP, ALE]");
+
+        /** New reference data for a symbol that has already traded re-ranks it, TEA now yields 100 / 20 = 5 */
+        market.recordCommonStock("TEA", 100d, 100d);
+        assertEquals(market.topByDividendYield(2).toString(), "[TEA, POP]");
+
+        /** Trades outside the window do not contribute to the volume ranking */
+        Calendar dateInPast = Calendar.getInstance(DEFAULT_BUSINESS_DATA.getTimeZone());
+        dateInPast.setTime(DEFAULT_BUSINESS_DATA.getTime());
+        dateInPast.add(Calendar.MINUTE, -16);
+        market.recordBuyTrade(1000, "TEA", 20d, dateInPast);
+        assertEquals(market.topByVolume(1).toString(), "[JOE]");
+
+        /** TEA traded at 20, a further 10 shares at 30 moves the VWSP to 25, a relative move of 0.25 */
+        market.recordBuyTrade(10, "TEA", 30d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 25);
+        assertEquals(market.volumeWeightedStockPriceMove("TEA"), 0.25);
+        assertEquals(market.topByVolumeWeightedStockPriceMove(1).toString(), "[TEA]");
+
+        /** Random updates agree with a full sort */
+        Random random = new Random(1);
+        SymbolRanking ranking = new SymbolRanking();
+        final double[] values = new double[200];
+        for (int i = 0; i < 5000; i++) {
+            int slot = random.nextInt(values.length);
+            values[slot] = random.nextInt(1000);
+            ranking.update(slot, String.format("S%03d", slot), values[slot]);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int slot = 0; slot < values.length; slot++) {
+            expected.add(String.format("S%03d", slot));
+        }
+        Collections.sort(expected, new Comparator<String>() {
+            public int compare(String a, String b) {
+                int result = Double.compare(values[Integer.parseInt(b.substring(1))], values[Integer.parseInt(a.substring(1))]);
+                return result != 0 ? result : a.compareTo(b);
+            }
+        });
+        assertEquals(ranking.top(20).toString(), expected.subList(0, 20).toString());
+        assertEquals(ranking.top(500).toString(), expected.toString());
+
+        /**
+         * Queries made while another thread updates never see a half applied update. Each slot's value stays within
+         * 15 of ten times the slot, so neighbouring slots keep swapping places but a slot never ranks above one two
+         * or more slots higher.
+         */
+        final SymbolRanking contended = new SymbolRanking();
+        for (int slot = 0; slot < 50; slot++) {
+            contended.update(slot, String.format("S%03d", slot), slot * 10);
+        }
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                Random random = new Random(2);
+                for (int i = 0; i < 200000; i++) {
+                    int slot = random.nextInt(50);
+                    contended.update(slot, String.format("S%03d", slot), slot * 10 + random.nextInt(15));
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<String> top = contended.top(10);
+            assertEquals(top.size(), 10);
+            assertTrue(new HashSet<>(top).size() == top.size());
+            for (int i = 0; i < top.size(); i++) {
+                assertTrue(Integer.parseInt(top.get(i).substring(1)) >= 39);
+                for (int j = i + 1; j < top.size(); j++) {
+                    assertTrue(Integer.parseInt(top.get(i).substring(1)) >= Integer.parseInt(top.get(j).substring(1)) - 1);
+                }
+            }
+        }
+        writer.join();
+        assertEquals(contended.top(100).size(), 50);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket buy and sell split analytics.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testBuySellSplit() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+
+        addStockDate(market);
+        market.recordBuyTrade(30, "TEA", 10d, DEFAULT_BUSINESS_DATA);
+        market.recordBuyTrade(10, "TEA", 14d, DEFAULT_BUSINESS_DATA);
+        market.recordSellTrade(20, "TEA", 8d, DEFAULT_BUSINESS_DATA);
+
+        /** Buy VWAP (30 * 10 + 10 * 14) / 40 = 11, sell VWAP = 8 */
+        assertEquals(market.buyVolumeWeightedStockPrice("TEA"), 11);
+        assertEquals(market.sellVolumeWeightedStockPrice("TEA"), 8);
+
+        /** Signed volume 40 - 20 = 20, imbalance 20 / 60 */
+        assertEquals(market.signedVolume("TEA"), 20);
+        assertEquals(market.orderFlowImbalance("TEA"), 20d / 60d);
+
+        /** Stocks without trades report zero */
+        assertEquals(market.orderFlowImbalance("POP"), 0);
+        assertEquals(market.sellVolumeWeightedStockPrice("POP"), 0);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket weighted and geometric indices are maintained as constituent prices change.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testIndices() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+
+        /** TEA trades before the indices are registered, its price seeds the indices */
+        market.recordBuyTrade(10, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+
+        final int[] notifications = new int[1];
+        StockIndexInterface priceWeighted = new PriceWeightedIndex("PW", new String[]{"TEA", "POP"}, 2d);
+        priceWeighted.setListener(new StockIndexListenerInterface() {
+            public void indexChanged(StockIndexInterface index, double value) {
+                notifications[0]++;
+            }
+        });
+
+        market.registerIndex(priceWeighted);
+        market.registerIndex(new CapWeightedIndex("CW", new String[]{"TEA", "POP"}, new double[]{100d, 50d}, 10d));
+        market.registerIndex(new EqualWeightedGeometricIndex("EG", new String[]{"TEA", "POP"}));
+
+        assertEquals(market.indexValue("PW"), 10);
+        assertEquals(market.indexValue("CW"), 200);
+        assertEquals(market.indexValue("EG"), Math.exp(Math.log(20d)));
+
+        market.recordSellTrade(5, "POP", 80d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.indexValue("PW"), 50);
+        assertEquals(market.indexValue("CW"), 600);
+        assertEquals(market.indexValue("EG"), Math.exp((Math.log(20d) + Math.log(80d)) / 2));
+
+        /** A trade at an unchanged price does not notify */
+        market.recordSellTrade(5, "POP", 80d, DEFAULT_BUSINESS_DATA);
+        assertEquals(notifications[0], 2);
+
+        /** An invalid trade is rejected before the history, statistics or indices are changed */
+        double geometricMean = market.geometricMean();
+        boolean rejected = false;
+        try {
+            market.recordSellTrade(5, "POP", 0d, DEFAULT_BUSINESS_DATA);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+        assertEquals(market.volumeWeightedStockPrice("POP"), 80);
+        assertEquals(market.geometricMean(), geometricMean);
+        assertEquals(market.indexValue("PW"), 50);
+        assertEquals(market.priceHistory("POP", DEFAULT_BUSINESS_DATA, minutesFrom(DEFAULT_BUSINESS_DATA, 1)).get(0).getVolume(), 10);
+
+        /** A listener that throws neither rejects nor half applies the trade */
+        market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        StockIndexInterface failing = new PriceWeightedIndex("FAIL", new String[]{"TEA"}, 1d);
+        failing.setListener(new StockIndexListenerInterface() {
+            public void indexChanged(StockIndexInterface index, double value) {
+                throw new IllegalStateException("Listener failure");
+            }
+        });
+        market.registerIndex(failing);
+        market.registerIndex(new PriceWeightedIndex("OK", new String[]{"TEA"}, 1d));
+        market.recordBuyTrade(10, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.indexFailureCount(), 1);
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 20);
+        assertEquals(market.geometricMean(), Math.exp(Math.log(20d)));
+        assertEquals(market.topByVolume(1).toString(), "[TEA]");
+        assertEquals(market.indexValue("FAIL"), 20);
+        assertEquals(market.indexValue("OK"), 20);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket bulk loading of stock reference data and rejection of unknown symbols.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testStockRegistry() throws Exception {
+
+        File file = File.createTempFile("stocks", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("STOCK SYMBOL,TYPE,LAST DIVIDEND,FIXED DIVIDEND,PAR VALUE\n");
+            writer.write("# Sample data from the Global Beverage Corporation Exchange\n");
+            writer.write("TEA,Common,0,,100\n");
+            writer.write("ALE,Common,23,,60\n");
+            writer.write("GIN,Preferred,8,2%,100\n");
+            for (int i = 0; i < 5000; i++) {
+                writer.write(String.format("S%04d,Common,%d,,100%n", i, i));
+            }
+        }
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        market.loadStocks(file);
+
+        assertEquals(market.dividendYield("ALE", 2), 11.5);
+        assertEquals(market.dividendYield("GIN", 100), 0.02);
+        assertEquals(market.dividendYield("S4999", 4999), 1);
+
+        /** Stocks recorded individually are merged with the loaded reference data */
+        market.recordCommonStock("POP", 8d, 100d);
+        assertEquals(market.dividendYield("POP", 8), 1);
+        assertEquals(market.dividendYield("TEA", 8), 0);
+
+        /** Stocks recorded as a batch replace existing stocks and re-rank symbols that have traded */
+        market.recordBuyTrade(10, "ALE", 2d, DEFAULT_BUSINESS_DATA);
+        market.recordBuyTrade(10, "GIN", 100d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.topByDividendYield(1).toString(), "[ALE]");
+        market.recordStocks(Arrays.<StockInterface>asList(new CommonStock("ALE", 0d, 60d), new CommonStock("NEW", 1d, 10d)));
+        assertEquals(market.dividendYield("ALE", 2), 0);
+        assertEquals(market.dividendYield("NEW", 1), 1);
+        assertEquals(market.topByDividendYield(1).toString(), "[GIN]");
+
+        /** Single registrations growing the registry keep every stock */
+        StockRegistry registry = StockRegistry.EMPTY;
+        for (int i = 0; i < 100; i++) {
+            registry = registry.with(new CommonStock(String.format("R%03d", i), (double) i, 100d));
+        }
+        registry = registry.with(new CommonStock("R050", 7d, 100d));
+        assertEquals(registry.size(), 100);
+        assertEquals(registry.get("R099").dividendYield(99), 1);
+        assertEquals(registry.get("R050").dividendYield(7), 1);
+
+        /** Trades for unknown symbols are rejected */
+        boolean rejected = false;
+        try {
+            market.recordBuyTrade(10, "XXX", 20d, DEFAULT_BUSINESS_DATA);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+        assertEquals(market.volumeWeightedStockPrice("XXX"), 0);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket trade history compaction into one minute bars.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testTradeHistory() throws Exception {
+
+        TradeHistory history = new TradeHistory(15);
+        long start = DEFAULT_BUSINESS_DATA.getTimeInMillis();
+        long minute = 60 * 1000;
+
+        /** Two trades a minute for an hour, prices rising by 0.25 per minute */
+        for (int i = 0; i < 60; i++) {
+            history.record("TEA", start + i * minute, 100 + i * 0.25, 10);
+            history.record("TEA", start + i * minute + 30000, 101 + i * 0.25, 30);
+        }
+
+        /** Only the minutes within 15 minutes of the latest trade remain raw */
+        assertEquals(history.getRawTradeCount("TEA"), 32);
+        assertTrue(history.getCompactedSize() < 44 * 24);
+
+        /** A compacted bar decodes to the original values */
+        List<PriceBarInterface> bars = history.bars("TEA", start + 10 * minute, start + 12 * minute);
+        assertEquals(bars.size(), 2);
+        PriceBarInterface bar = bars.get(0);
+        assertEquals(bar.getStartTime(), start + 10 * minute);
+        assertEquals(bar.getOpen(), 102.5);
+        assertEquals(bar.getHigh(), 103.5);
+        assertEquals(bar.getLow(), 102.5);
+        assertEquals(bar.getClose(), 103.5);
+        assertEquals(bar.getVolume(), 40);
+        assertEquals(bar.getVolumeWeightedStockPrice(), (102.5 * 10 + 103.5 * 30) / 40);
+
+        /** Ranges spanning both tiers return every minute once */
+        assertEquals(history.bars("TEA", start, start + 60 * minute).size(), 60);
+
+        /** A late trade for a compacted minute is merged into that minute's bar */
+        history.record("TEA", start + 10 * minute + 45000, 90, 60);
+        bar = history.bars("TEA", start + 10 * minute, start + 11 * minute).get(0);
+        assertEquals(bar.getLow(), 90);
+        assertEquals(bar.getVolume(), 100);
+
+        /** The open and close of a bar are chosen by trade time, not by the order the trades were recorded */
+        history.record("ALE", start + 30000, 10, 10);
+        history.record("ALE", start + 50000, 12, 10);
+        history.record("ALE", start + 20 * minute, 11, 10);
+        history.record("ALE", start + 5000, 5, 10);
+        bar = history.bars("ALE", start, start + minute).get(0);
+        assertEquals(bar.getOpen(), 5);
+        assertEquals(bar.getClose(), 12);
+        assertEquals(bar.getLow(), 5);
+        assertEquals(bar.getVolume(), 30);
+
+        /** The same holds once the late trade is itself compacted into a second bar for the minute */
+        history.record("ALE", start + 21 * minute, 11, 10);
+        assertEquals(history.getRawTradeCount("ALE"), 2);
+        bar = history.bars("ALE", start, start + minute).get(0);
+        assertEquals(bar.getOpen(), 5);
+        assertEquals(bar.getClose(), 12);
+        assertEquals(bar.getVolume(), 30);
+
+        /** The market exposes the history */
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        addTradeData(DEFAULT_BUSINESS_DATA, market);
+        Calendar to = Calendar.getInstance();
+        to.setTimeInMillis(start + minute);
+        assertEquals(market.priceHistory("JOE", DEFAULT_BUSINESS_DATA, to).get(0).getClose(), 50);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket the load generator is deterministic and skews symbol popularity.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testTradeStreamGenerator() throws Exception {
+
+        TradeStreamGenerator first = new TradeStreamGenerator(7, 100, 1.1, 1000, 10);
+        TradeStreamGenerator second = new TradeStreamGenerator(7, 100, 1.1, 1000, 10);
+        GeneratedTrade a = new GeneratedTrade();
+        GeneratedTrade b = new GeneratedTrade();
+
+        int mostPopular = 0;
+        int leastPopular = 0;
+        long previousOffset = 0;
+        for (int i = 0; i < 10000; i++) {
+            first.next(a);
+            second.next(b);
+            assertEquals(a.getSymbol(), b.getSymbol());
+            assertEquals(a.getPrice(), b.getPrice());
+            assertEquals(a.getNumberOfShares(), b.getNumberOfShares());
+            assertEquals(a.getOffsetNanos(), b.getOffsetNanos());
+            assertTrue(a.getOffsetNanos() >= previousOffset);
+            previousOffset = a.getOffsetNanos();
+
+            if (a.getSymbol().equals(TradeStreamGenerator.symbol(0))) mostPopular++;
+            if (a.getSymbol().equals(TradeStreamGenerator.symbol(99))) leastPopular++;
+        }
+        assertTrue(mostPopular > 20 * leastPopular);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket published snapshots are immutable point in time views.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testSnapshots() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA, 5);
+        addStockDate(market);
+        market.registerIndex(new PriceWeightedIndex("PW", new String[]{"TEA", "POP"}, 1d));
+
+        assertEquals(market.snapshot().getVersion(), 0);
+        assertEquals(market.snapshot().volumeWeightedStockPrice("TEA"), 0);
+
+        /** The fifth trade publishes a snapshot automatically */
+        addTradeData(DEFAULT_BUSINESS_DATA, market);
+        MarketSnapshotInterface first = market.snapshot();
+        assertEquals(first.getVersion(), 1);
+        assertEquals(first.getTradeCount(), 5);
+        assertEquals(first.volumeWeightedStockPrice("TEA"), 20);
+        assertEquals(first.indexValue("PW"), 30);
+        assertEquals(first.geometricMean(), market.geometricMean());
+
+        /** Later trades do not change a published snapshot */
+        market.recordBuyTrade(10, "TEA", 40d, DEFAULT_BUSINESS_DATA);
+        market.recordSellTrade(10, "ALE", 40d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 30);
+        assertEquals(first.volumeWeightedStockPrice("TEA"), 20);
+        assertEquals(first.lastPrice("TEA"), 20);
+        assertEquals(first.windowVolume("TEA"), 10);
+        assertEquals(first.indexValue("PW"), 30);
+
+        /** A request on an idle market publishes at once */
+        MarketSnapshotInterface second = market.requestSnapshot();
+        assertEquals(second.getVersion(), 2);
+        assertEquals(market.snapshot().getVersion(), 2);
+        assertEquals(second.getTradeCount(), 7);
+        assertEquals(second.volumeWeightedStockPrice("TEA"), 30);
+        assertEquals(second.indexValue("PW"), 50);
+        assertEquals(second.signedVolume("ALE"), -40);
+        assertEquals(second.dividendYield("ALE", 2), 11.5);
+
+        /** A request is honoured once */
+        market.recordBuyTrade(10, "TEA", 30d, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.snapshot().getVersion(), 2);
+
+        /** Without automatic publication, a request still sees every trade and reference data change */
+        market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        addTradeData(DEFAULT_BUSINESS_DATA, market);
+        market.recordCommonStock("NEW", 1d, 10d);
+        MarketSnapshotInterface idle = market.requestSnapshot();
+        assertEquals(idle.getVersion(), 1);
+        assertEquals(idle.getTradeCount(), 5);
+        assertEquals(idle.volumeWeightedStockPrice("TEA"), 20);
+        assertEquals(idle.dividendYield("NEW", 1), 1);
+
+        /** While another thread records trades, a request holds at least every trade recorded before it */
+        final SuperSimpleStockMarket busy = market;
+        final AtomicInteger recorded = new AtomicInteger();
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 20000; i++) {
+                    busy.recordBuyTrade(1, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+                    recorded.incrementAndGet();
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int before = recorded.get();
+            assertTrue(busy.requestSnapshot().getTradeCount() >= 5 + before);
+        }
+        writer.join();
+        assertEquals(busy.requestSnapshot().getTradeCount(), 20005);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket range and as-of Volume Weighted Stock Price queries.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testVolumeWeightedStockPriceRange() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+
+        /** One TEA trade per minute for an hour before the business date, price 1 to 60, 10 shares each */
+        for (int i = 1; i <= 60; i++) {
+            market.recordBuyTrade(10, "TEA", i, minutesFrom(DEFAULT_BUSINESS_DATA, i - 60));
+        }
+        /** A late trade for the first minute */
+        market.recordSellTrade(30, "TEA", 5, minutesFrom(DEFAULT_BUSINESS_DATA, -59));
+
+        /** [minute 0, minute 2) holds prices 1 and 2 at 10 shares plus the late trade at 5 for 30 shares */
+        assertEquals(market.volumeWeightedStockPrice("TEA", minutesFrom(DEFAULT_BUSINESS_DATA, -59), minutesFrom(DEFAULT_BUSINESS_DATA, -57)), (10d + 20d + 150d) / 50d);
+
+        /** The end of the range is exclusive */
+        assertEquals(market.volumeWeightedStockPrice("TEA", minutesFrom(DEFAULT_BUSINESS_DATA, -1), DEFAULT_BUSINESS_DATA), 59);
+        assertEquals(market.volumeWeightedStockPrice("TEA", DEFAULT_BUSINESS_DATA, DEFAULT_BUSINESS_DATA), 0);
+
+        /** As of the business date matches the live window, prices 45 to 60 */
+        assertEquals(market.volumeWeightedStockPriceAsOf("TEA", DEFAULT_BUSINESS_DATA), market.volumeWeightedStockPrice("TEA"));
+        assertEquals(market.volumeWeightedStockPriceAsOf("TEA", DEFAULT_BUSINESS_DATA), 52.5);
+
+        /** As of 30 minutes earlier, prices 15 to 30 */
+        assertEquals(market.volumeWeightedStockPriceAsOf("TEA", minutesFrom(DEFAULT_BUSINESS_DATA, -30)), 22.5);
+        assertEquals(market.volumeWeightedStockPriceAsOf("POP", DEFAULT_BUSINESS_DATA), 0);
+
+        /** Prices finer than the bar tick are not rounded, as-of the business date matches the live window */
+        for (int i = 0; i < 10000; i++) {
+            market.recordBuyTrade(7 + i % 13, "ALE", 1.23456789 + i * 0.000001, minutesFrom(DEFAULT_BUSINESS_DATA, -60));
+        }
+        market.recordBuyTrade(10, "ALE", 0.00005, DEFAULT_BUSINESS_DATA);
+        market.recordBuyTrade(10, "ALE", 1.23456789, DEFAULT_BUSINESS_DATA);
+        assertEquals(market.volumeWeightedStockPriceAsOf("ALE", DEFAULT_BUSINESS_DATA), market.volumeWeightedStockPrice("ALE"), 1e-12);
+        assertEquals(market.volumeWeightedStockPrice("ALE", DEFAULT_BUSINESS_DATA, minutesFrom(DEFAULT_BUSINESS_DATA, 1)), (0.0005 + 12.3456789) / 20, 1e-12);
+
+        /** Prices that do not fit the tick scale are rejected */
+        for (double price : new double[]{0.00001, 1e15, Double.POSITIVE_INFINITY}) {
+            boolean rejected = false;
+            try {
+                market.recordBuyTrade(10, "ALE", price, DEFAULT_BUSINESS_DATA);
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            assertTrue(rejected);
+        }
+    }
+
+    /**
+     * Offset a date by a number of minutes.
+     */
+    private static Calendar minutesFrom(Calendar date, int minutes) {
+        Calendar result = Calendar.getInstance(date.getTimeZone());
+        result.setTime(date.getTime());
+        result.add(Calendar.MINUTE, minutes);
+        return result;
+    }
+
+    /**
+     * TestSuperSimpleStockMarket binary trade messages are recorded without decoding into objects.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testTradeMessage() throws Exception {
+
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+
+        ByteBuffer buffer = ByteBuffer.allocate(3 * TradeMessage.LENGTH);
+        TradeMessage message = new TradeMessage();
+        message.wrap(buffer, 0).setSymbol("TEA").setTimestamp(DEFAULT_BUSINESS_DATA.getTimeInMillis())
+                .setPrice(20.5).setNumberOfShares(10).setTradeStatus(TradeStatus.BUY);
+        message.wrap(buffer, TradeMessage.LENGTH).setSymbol("TEA").setTimestamp(DEFAULT_BUSINESS_DATA.getTimeInMillis())
+                .setPrice(10.25).setNumberOfShares(30).setTradeStatus(TradeStatus.SELL);
+        message.wrap(buffer, 2 * TradeMessage.LENGTH).setSymbol("XXX").setTimestamp(DEFAULT_BUSINESS_DATA.getTimeInMillis())
+                .setPrice(1).setNumberOfShares(1).setTradeStatus(TradeStatus.SELL);
+
+        message.wrap(buffer, TradeMessage.LENGTH);
+        assertEquals(message.getSymbolLength(), 3);
+        assertEquals(message.getPrice(), 10.25);
+        assertEquals(message.getNumberOfShares(), 30);
+        assertEquals(message.getTradeStatus().name(), "SELL");
+
+        market.recordTradeMessage(buffer, 0);
+        market.recordTradeMessage(buffer, TradeMessage.LENGTH);
+        assertEquals(market.volumeWeightedStockPrice("TEA"), (20.5 * 10 + 10.25 * 30) / 40);
+        assertEquals(market.signedVolume("TEA"), -20);
+
+        boolean rejected = false;
+        try {
+            market.recordTradeMessage(buffer, 2 * TradeMessage.LENGTH);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+    }
+
+    /**
+     * TestSuperSimpleStockMarket overload policies of the trade ingest queue.
+     *
+     * @throws Exception Error occurred.
+     */
+    private static void testTradeIngestQueue() throws Exception {
+
+        /** Drop oldest, the queue is not drained until closed */
+        SuperSimpleStockMarket market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        TradeIngestQueue queue = new TradeIngestQueue(market, 2, OverloadPolicy.DROP_OLDEST);
+        queue.submitBuyTrade(10, "TEA", 10d, DEFAULT_BUSINESS_DATA);
+        queue.submitBuyTrade(10, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+        queue.submitBuyTrade(10, "TEA", 30d, DEFAULT_BUSINESS_DATA);
+        assertEquals(queue.getQueueDepth(), 2);
+        assertEquals(queue.getDroppedCount(), 1);
+        queue.close();
+        assertEquals(queue.getQueueDepth(), 0);
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 25);
+        assertTrue(!queue.submitBuyTrade(10, "TEA", 30d, DEFAULT_BUSINESS_DATA));
+
+        /** Conflate merges into the queued trade for the same symbol and side, preserving the VWSP */
+        market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        queue = new TradeIngestQueue(market, 2, OverloadPolicy.CONFLATE);
+        queue.submitBuyTrade(10, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+        queue.submitSellTrade(10, "POP", 20d, DEFAULT_BUSINESS_DATA);
+        queue.submitBuyTrade(30, "TEA", 40d, DEFAULT_BUSINESS_DATA);
+        queue.submitBuyTrade(5, "ALE", 40d, DEFAULT_BUSINESS_DATA);
+        assertEquals(queue.getConflatedCount(), 1);
+        assertEquals(queue.getDroppedCount(), 1);
+        assertEquals(queue.getAcceptedCount(), 4);
+        queue.close();
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 0);
+        assertEquals(market.volumeWeightedStockPrice("POP"), 20);
+        assertEquals(market.volumeWeightedStockPrice("ALE"), 40);
+
+        market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        queue = new TradeIngestQueue(market, 2, OverloadPolicy.CONFLATE);
+        queue.submitBuyTrade(10, "TEA", 20d, DEFAULT_BUSINESS_DATA);
+        queue.submitSellTrade(10, "POP", 20d, DEFAULT_BUSINESS_DATA);
+        queue.submitBuyTrade(30, "TEA", 40d, DEFAULT_BUSINESS_DATA);
+        queue.close();
+        assertEquals(market.volumeWeightedStockPrice("TEA"), 35);
+        assertEquals(market.signedVolume("TEA"), 40);
+
+        /** Block, every trade is recorded and unknown symbols are counted as rejected */
+        market = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA);
+        addStockDate(market);
+        queue = new TradeIngestQueue(market, 4, OverloadPolicy.BLOCK);
+        queue.start();
+        for (int i = 0; i < 1000; i++) {
+            queue.submitSellTrade(1, "GIN", 10d, DEFAULT_BUSINESS_DATA);
+        }
+        queue.submitSellTrade(1, "XXX", 10d, DEFAULT_BUSINESS_DATA);
+        queue.close();
+        assertEquals(market.signedVolume("GIN"), -1000);
+        assertEquals(queue.getDroppedCount(), 0);
+        assertEquals(queue.getRejectedCount(), 1);
+        assertTrue(queue.getMaxQueueDepth() <= 4);
+
+        /** Invalid trades are rejected on submission */
+        boolean rejected = false;
+        try {
+            queue.submitBuyTrade(10, "TEA", 20d, null);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+
+        /** Any failure of the market is counted, the drain thread carries on and blocked producers are released */
+        SuperSimpleStockMarket failing = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA) {
+            @Override
+            public void recordSellTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
+                if (price == 13d) throw new IllegalStateException("Market failure");
+                super.recordSellTrade(numberOfShares, stockSymbol, price, timestamp);
+            }
+        };
+        addStockDate(failing);
+        queue = new TradeIngestQueue(failing, 4, OverloadPolicy.BLOCK);
+        queue.start();
+        for (int i = 0; i < 100; i++) {
+            queue.submitSellTrade(1, "GIN", i % 10 == 0 ? 13d : 10d, DEFAULT_BUSINESS_DATA);
+        }
+        queue.close();
+        assertEquals(failing.signedVolume("GIN"), -90);
+        assertEquals(queue.getRejectedCount(), 10);
+
+        /** Interrupting the drain thread closes the queue, queued trades are still recorded and producers released */
+        SuperSimpleStockMarket interrupting = new SuperSimpleStockMarket(DEFAULT_BUSINESS_DATA) {
+            @Override
+            public void recordSellTrade(int numberOfShares, String stockSymbol, double price, Calendar timestamp) {
+                if (price == 13d) Thread.currentThread().interrupt();
+                super.recordSellTrade(numberOfShares, stockSymbol, price, timestamp);
+            }
+        };
+        addStockDate(interrupting);
+        queue = new TradeIngestQueue(interrupting, 4, OverloadPolicy.BLOCK);
+        queue.start();
+        int submitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (queue.submitSellTrade(1, "GIN", i == 10 ? 13d : 10d, DEFAULT_BUSINESS_DATA)) submitted++;
+        }
+        assertTrue(submitted > 10 && submitted < 1000);
+        queue.close();
+        assertEquals(queue.getAcceptedCount(), submitted);
+        assertEquals(interrupting.signedVolume("GIN"), -submitted);
+        assertTrue(!queue.submitSellTrade(1, "GIN", 10d, DEFAULT_BUSINESS_DATA));
+    }
+
     /**
      * TestSuperSimpleStockMarket that the NavigableSet & Comparator does sort all trade entries by timestamp.
      */
@@ -237,6 +912,20 @@ public class TestSuperSimpleStockMarket {
         }
     }
 
+    /**
+     * TestSuperSimpleStockMarket if parameters are equal within a relative tolerance.
+     *
+     * @param actual    actual result.
+     * @param expected  expected result
+     * @param tolerance relative tolerance
+     * @throws Exception TestSuperSimpleStockMarket failed.
+     */
+    private static void assertEquals(double actual, double expected, double tolerance) throws Exception {
+        if (!(Math.abs(actual - expected) <= tolerance * Math.abs(expected))) {
+            throw new TestFailedException(String.format("TestSuperSimpleStockMarket failed %f != %f", actual, expected));
+        }
+    }
+
     /**
      * TestSuperSimpleStockMarket if parameters are equal.
      *
@@ -250,6 +939,18 @@ public class TestSuperSimpleStockMarket {
         }
     }
 
+    /**
+     * TestSuperSimpleStockMarket if condition holds.
+     *
+     * @param condition condition under test.
+     * @throws Exception TestSuperSimpleStockMarket failed.
+     */
+    private static void assertTrue(boolean condition) throws Exception {
+        if (!condition) {
+            throw new TestFailedException("TestSuperSimpleStockMarket failed condition is false");
+        }
+    }
+
     /**
      * Main class.
      *
@@ -262,6 +963,16 @@ public class TestSuperSimpleStockMarket {
         testVolumeWeightedStockPrice();
         testStock();
         testConcurrentSkipListSet();
+        testRankings();
+        testBuySellSplit();
+        testIndices();
+        testStockRegistry();
+        testTradeHistory();
+        testTradeStreamGenerator();
+        testSnapshots();
+        testVolumeWeightedStockPriceRange();
+        testTradeMessage();
+        testTradeIngestQueue();
 
         System.out.println("All tests have completed successfully");
     }